@@ -0,0 +1,25 @@
+package movieapp.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry {
+    private Object value;
+    private long createdAt;
+    private long computeMillis;
+    // Hash slug + modified.time của response Ophim đã dùng để build value
+    private String fingerprint;
+
+    public CacheEntry(Object value, long createdAt, long computeMillis) {
+        this(value, createdAt, computeMillis, null);
+    }
+
+    //    VALUE WRITTEN BEFORE ENTRIES WERE WRAPPED (treated as stale)
+    public static CacheEntry legacy(Object value) {
+        return new CacheEntry(value, 0L, 0L);
+    }
+}
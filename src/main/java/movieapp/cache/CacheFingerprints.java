@@ -0,0 +1,33 @@
+package movieapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Fingerprint = hash slug + modified.time của response upstream dùng để build entry
+// Đăng ký theo cache name (giống CacheTagIndex) để mọi đường ghi của TwoTierCache đều lưu kèm
+@Component
+@Slf4j
+public class CacheFingerprints {
+    // cacheName -> key -> fingerprint
+    private final Map<String, Function<String, String>> fingerprinters = new ConcurrentHashMap<>();
+
+    public void register(String cacheName, Function<String, String> fingerprinter) {
+        fingerprinters.put(cacheName, fingerprinter);
+    }
+
+    //    null = cache / key không có fingerprint (entry vẫn ghi bình thường)
+    public String fingerprintOf(String cacheName, String key) {
+        Function<String, String> fingerprinter = fingerprinters.get(cacheName);
+        if (fingerprinter == null) return null;
+        try {
+            return fingerprinter.apply(key);
+        } catch (RuntimeException e) {
+            log.debug("No fingerprint for {}::{}: {}", cacheName, key, e.getMessage());
+            return null;
+        }
+    }
+}
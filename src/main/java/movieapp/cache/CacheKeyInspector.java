@@ -0,0 +1,79 @@
+package movieapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Admin tooling: SCAN theo cursor (không KEYS) + 1 pipeline cho TTL/size/idle của mọi key
+@Component
+@Slf4j
+public class CacheKeyInspector {
+    private static final int SCAN_COUNT = 500;
+    private static final byte[] MEMORY_USAGE = "USAGE".getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public record KeyInfo(String key, String type, long ttlMillis, Long sizeBytes, Long idleSeconds) {
+    }
+
+    public CacheKeyInspector(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public List<String> scanKeys(String pattern) {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        return keys;
+    }
+
+    public List<KeyInfo> inspect(String pattern) {
+        List<String> keys = scanKeys(pattern);
+        if (keys.isEmpty()) return List.of();
+
+        // 4 lệnh / key, cùng 1 round trip
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+                connection.keyCommands().type(rawKey);
+                connection.keyCommands().pTtl(rawKey);
+                connection.keyCommands().idletime(rawKey);
+                memoryUsage(connection, rawKey);
+            }
+            return null;
+        });
+
+        List<KeyInfo> infos = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            int offset = i * 4;
+            Object type = results.get(offset);
+            Long ttl = (Long) results.get(offset + 1);
+            Duration idle = (Duration) results.get(offset + 2);
+            Object size = results.get(offset + 3);
+
+            infos.add(new KeyInfo(
+                    keys.get(i),
+                    type instanceof DataType dataType ? dataType.code() : String.valueOf(type),
+                    ttl != null ? ttl : -2,
+                    size instanceof Number number ? number.longValue() : null,
+                    idle != null ? idle.getSeconds() : null));
+        }
+        return infos;
+    }
+
+    private static void memoryUsage(RedisConnection connection, byte[] rawKey) {
+        connection.execute("MEMORY", MEMORY_USAGE, rawKey);
+    }
+}
@@ -0,0 +1,93 @@
+package movieapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Tag = nguồn upstream của entry (vd: ophim:home, ophim:list:phim-moi?country=han-quoc)
+// cache::tag::{tag} -> SET "{cacheName}::{key}", ghi cùng lúc với entry
+@Component
+@Slf4j
+public class CacheTagIndex {
+    private static final String TAG_PREFIX = "cache::tag::";
+    private static final String SEPARATOR = "::";
+
+    private final StringRedisTemplate redisTemplate;
+
+    // cacheName -> key -> tags
+    private final Map<String, Function<String, Collection<String>>> taggers = new ConcurrentHashMap<>();
+
+    public CacheTagIndex(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void register(String cacheName, Function<String, Collection<String>> tagger) {
+        taggers.put(cacheName, tagger);
+    }
+
+    public Collection<String> tagsOf(String cacheName, String key) {
+        Function<String, Collection<String>> tagger = taggers.get(cacheName);
+        if (tagger == null) return List.of();
+        try {
+            return tagger.apply(key);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    // ===================================
+    // WRITE: inside the caller's pipeline (SADD + PEXPIRE per tag)
+    // ===================================
+    public void writeTags(RedisConnection connection, String cacheName, Collection<String> keys, long ttlMillis) {
+        for (String key : keys) {
+            byte[] member = (cacheName + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+            for (String tag : tagsOf(cacheName, key)) {
+                byte[] tagKey = tagKey(tag);
+                connection.setCommands().sAdd(tagKey, member);
+                connection.keyCommands().pExpire(tagKey, ttlMillis);
+            }
+        }
+    }
+
+    public void tag(String cacheName, Collection<String> keys, long ttlMillis) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeTags(connection, cacheName, keys, ttlMillis);
+            return null;
+        });
+    }
+
+    // ===================================
+    // READ: every entry carrying any of the tags (one SUNION), grouped by cache
+    // ===================================
+    public Map<String, Set<String>> keysByCache(Collection<String> tags) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        if (tags.isEmpty()) return result;
+
+        Set<String> members = redisTemplate.opsForSet().union(tags.stream().map(tag -> TAG_PREFIX + tag).toList());
+        if (members == null) return result;
+
+        for (String member : members) {
+            int separator = member.indexOf(SEPARATOR);
+            if (separator <= 0) continue;
+            result.computeIfAbsent(member.substring(0, separator), name -> new LinkedHashSet<>())
+                    .add(member.substring(separator + SEPARATOR.length()));
+        }
+        return result;
+    }
+
+    private static byte[] tagKey(String tag) {
+        return (TAG_PREFIX + tag).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package movieapp.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Value codec cho Redis: [MAGIC][VERSION][FLAGS][(LZ4) original length][payload]
+// Entry cũ (JSON thuần, không có MAGIC) vẫn đọc được -> migrate dần khi refresh ghi lại
+@Slf4j
+public class CacheValueCodec implements RedisSerializer<Object> {
+    // 0xC1 không bao giờ đứng đầu JSON/UTF-8 hợp lệ
+    static final byte MAGIC = (byte) 0xC1;
+    static final byte VERSION = 1;
+    static final byte FLAG_LZ4 = 0x01;
+    private static final int HEADER_BYTES = 3;
+
+    public enum Format {
+        JSON, SMILE
+    }
+
+    private final Format format;
+    private final int compressThresholdBytes;
+    private final GenericJackson2JsonRedisSerializer json;
+    private final GenericJackson2JsonRedisSerializer smile;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    public CacheValueCodec(Format format, int compressThresholdBytes) {
+        this.format = format;
+        this.compressThresholdBytes = compressThresholdBytes;
+        this.json = new GenericJackson2JsonRedisSerializer();
+
+        // Smile tự back-reference tên field + chuỗi lặp lại (vd: "@class") -> type metadata gần như miễn phí
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        this.smile = GenericJackson2JsonRedisSerializer.builder()
+                .objectMapper(new ObjectMapper(smileFactory))
+                .defaultTyping(true)
+                .build();
+
+        LZ4Factory lz4 = LZ4Factory.fastestInstance();
+        this.compressor = lz4.fastCompressor();
+        this.decompressor = lz4.fastDecompressor();
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) return new byte[0];
+        if (format == Format.JSON) return json.serialize(value);
+
+        byte[] payload = smile.serialize(value);
+        if (payload.length < compressThresholdBytes) {
+            return frame((byte) 0, payload, -1);
+        }
+
+        byte[] compressed = compressor.compress(payload);
+        // Nén không lợi thì giữ bản gốc
+        if (compressed.length + Integer.BYTES >= payload.length) {
+            return frame((byte) 0, payload, -1);
+        }
+        return frame(FLAG_LZ4, compressed, payload.length);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        if (bytes[0] != MAGIC) {
+            // Legacy: GenericJackson2JsonRedisSerializer
+            return json.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_BYTES || bytes[1] != VERSION) {
+            throw new SerializationException("Unsupported cache codec version: " + (bytes.length > 1 ? bytes[1] : -1));
+        }
+
+        byte flags = bytes[2];
+        if ((flags & FLAG_LZ4) == 0) {
+            return smile.deserialize(Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length));
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+        int originalLength = buffer.getInt();
+        byte[] payload = new byte[originalLength];
+        decompressor.decompress(bytes, buffer.position(), payload, 0, originalLength);
+        return smile.deserialize(payload);
+    }
+
+    private static byte[] frame(byte flags, byte[] payload, int originalLength) {
+        boolean compressed = (flags & FLAG_LZ4) != 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (compressed ? Integer.BYTES : 0) + payload.length);
+        buffer.put(MAGIC).put(VERSION).put(flags);
+        if (compressed) buffer.putInt(originalLength);
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    public static Format parseFormat(String value) {
+        try {
+            return Format.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Unknown cache codec '{}', falling back to JSON", value);
+            return Format.JSON;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package movieapp.cache;
+
+import java.util.Map;
+
+// Tách dữ liệu dùng chung (vd: movie theo slug) ra khỏi value trước khi ghi Redis, ghép lại khi đọc
+public interface CacheValueNormalizer {
+    CacheValueNormalizer NONE = new CacheValueNormalizer() {
+        @Override
+        public Map<String, Object> normalizeAll(Map<String, Object> values) {
+            return values;
+        }
+
+        @Override
+        public Map<String, Object> hydrateAll(Map<String, Object> stored) {
+            return stored;
+        }
+    };
+
+    // Ghi phần dùng chung, trả về value gọn để lưu (cùng key)
+    Map<String, Object> normalizeAll(Map<String, Object> values);
+
+    // null = phần dùng chung đã mất (coi như cache miss)
+    Map<String, Object> hydrateAll(Map<String, Object> stored);
+
+    default Object normalize(Object value) {
+        return normalizeAll(Map.of("value", value)).get("value");
+    }
+
+    default Object hydrate(Object stored) {
+        Map<String, Object> hydrated = hydrateAll(Map.of("value", stored));
+        return hydrated != null ? hydrated.get("value") : null;
+    }
+}
@@ -0,0 +1,231 @@
+package movieapp.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Lease trên Redis: mỗi job chỉ 1 instance chạy, kèm fencing token tăng dần
+// Leader chết giữa chừng -> lease hết hạn -> standby đang chờ sẽ nhận và chạy lại
+@Component
+@Slf4j
+public class ClusterLease {
+    private static final String FENCE_SEQ_KEY = "lease::fence::seq";
+
+    // KEYS[1]=lease, KEYS[2]=fence seq | ARGV[1]=owner, ARGV[2]=ttl ms
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            local token = redis.call('INCR', KEYS[2])
+            redis.call('SET', KEYS[1], ARGV[1] .. ':' .. token, 'PX', ARGV[2])
+            return token
+            """, Long.class);
+
+    // KEYS[1]=lease | ARGV[1]=holder, ARGV[2]=ttl ms
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1]=lease, KEYS[2]=done marker | ARGV[1]=holder, ARGV[2]=cooldown ms ('' = không đánh dấu)
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end
+            if ARGV[2] ~= '' then redis.call('SET', KEYS[2], ARGV[1], 'PX', ARGV[2]) end
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.cache.lease.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.cache.lease.standby-window-seconds:240}")
+    private long standbyWindowSeconds;
+
+    @Value("${app.cache.lease.poll-seconds:5}")
+    private long pollSeconds;
+
+    @Value("${app.cache.lease.cooldown-seconds:300}")
+    private long cooldownSeconds;
+
+    public ClusterLease(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // ===================================
+    // RUN TASK ONCE ACROSS THE CLUSTER
+    // ===================================
+    // true = instance này đã chạy task, false = instance khác đã/đang lo
+    public boolean runExclusively(String name, Consumer<Lease> task) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(standbyWindowSeconds);
+
+        while (true) {
+            Optional<Lease> acquired;
+            try {
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(doneKey(name)))) {
+                    log.info("⏭️ [{}] Already completed by another instance", name);
+                    return false;
+                }
+                acquired = tryAcquire(name);
+            } catch (Exception e) {
+                // Redis lỗi -> chạy local như trước (fail-open), không có fencing token
+                log.warn("⚠️ [{}] Lease unavailable ({}), running without cluster lock", name, e.getMessage());
+                task.accept(null);
+                return true;
+            }
+
+            if (acquired.isPresent()) {
+                // Leader cũ có thể vừa xong giữa lúc check và acquire
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(doneKey(name)))) {
+                    acquired.get().release(false);
+                    log.info("⏭️ [{}] Already completed by another instance", name);
+                    return false;
+                }
+                runHolding(acquired.get(), task);
+                return true;
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                log.warn("⏭️ [{}] Another instance still holds the lease, giving up standby", name);
+                return false;
+            }
+            log.debug("🕒 [{}] Standing by, lease held by another instance", name);
+            if (!sleep(pollSeconds)) return false;
+        }
+    }
+
+    //    ONE NON-BLOCKING ATTEMPT (early refresh from readers): no standby, no fail-open
+    public boolean runIfFree(String name, Consumer<Lease> task) {
+        Optional<Lease> acquired;
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(doneKey(name)))) return false;
+            acquired = tryAcquire(name);
+            if (acquired.isPresent() && Boolean.TRUE.equals(redisTemplate.hasKey(doneKey(name)))) {
+                acquired.get().release(false);
+                return false;
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [{}] Lease unavailable ({}), skipping early refresh", name, e.getMessage());
+            return false;
+        }
+        if (acquired.isEmpty()) return false;
+
+        runHolding(acquired.get(), task);
+        return true;
+    }
+
+    public Optional<Lease> tryAcquire(String name) {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        Long token = redisTemplate.execute(ACQUIRE, List.of(leaseKey(name), FENCE_SEQ_KEY), nodeId, String.valueOf(ttlMillis));
+        if (token == null || token == 0) return Optional.empty();
+
+        log.info("👑 [{}] Lease acquired by {} (fence {})", name, nodeId, token);
+        return Optional.of(new Lease(name, token));
+    }
+
+    private void runHolding(Lease lease, Consumer<Lease> task) {
+        long periodMillis = Math.max(TimeUnit.SECONDS.toMillis(ttlSeconds) / 3, 1000);
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(lease::renew, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        boolean completed = false;
+        try {
+            task.accept(lease);
+            completed = true;
+        } finally {
+            renewal.cancel(false);
+            // Chỉ đánh dấu done khi xong; task lỗi -> nhả lease không đánh dấu, standby đang chờ nhận và chạy lại
+            lease.release(completed);
+        }
+    }
+
+    private static boolean sleep(long seconds) {
+        try {
+            TimeUnit.SECONDS.sleep(seconds);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    private static String leaseKey(String name) {
+        return "lease::" + name;
+    }
+
+    private static String doneKey(String name) {
+        return "lease::" + name + "::done";
+    }
+
+    // ===================================
+    // LEASE HANDLE (fencing token + heartbeat)
+    // ===================================
+    public final class Lease {
+        private final String name;
+        private final long fencingToken;
+        private final String holder;
+        private volatile boolean held = true;
+
+        private Lease(String name, long fencingToken) {
+            this.name = name;
+            this.fencingToken = fencingToken;
+            this.holder = nodeId + ":" + fencingToken;
+        }
+
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        public boolean isHeld() {
+            return held;
+        }
+
+        void renew() {
+            if (!held) return;
+            try {
+                Long renewed = redisTemplate.execute(RENEW, List.of(leaseKey(name)), holder,
+                        String.valueOf(TimeUnit.SECONDS.toMillis(ttlSeconds)));
+                if (renewed == null || renewed == 0) {
+                    held = false;
+                    log.error("❌ [{}] Lease lost (fence {}), writes will be fenced off", name, fencingToken);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ [{}] Lease renewal failed: {}", name, e.getMessage());
+            }
+        }
+
+        void release(boolean completed) {
+            try {
+                String cooldown = completed ? String.valueOf(TimeUnit.SECONDS.toMillis(cooldownSeconds)) : "";
+                redisTemplate.execute(RELEASE, List.of(leaseKey(name), doneKey(name)), holder, cooldown);
+                log.info("👋 [{}] Lease released (fence {})", name, fencingToken);
+            } catch (Exception e) {
+                log.warn("⚠️ [{}] Lease release failed, it will expire on its own: {}", name, e.getMessage());
+            } finally {
+                held = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package movieapp.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// So sánh size + thời gian encode/decode giữa các codec trên payload thật
+public final class CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+
+    private CodecBenchmark() {
+    }
+
+    public static List<Map<String, Object>> run(Map<String, Object> payloads, int iterations, int compressThresholdBytes) {
+        Map<String, RedisSerializer<Object>> codecs = new LinkedHashMap<>();
+        codecs.put("json", new CacheValueCodec(CacheValueCodec.Format.JSON, compressThresholdBytes));
+        codecs.put("smile", new CacheValueCodec(CacheValueCodec.Format.SMILE, Integer.MAX_VALUE));
+        codecs.put("smile+lz4", new CacheValueCodec(CacheValueCodec.Format.SMILE, compressThresholdBytes));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        payloads.forEach((key, value) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("key", key);
+            codecs.forEach((codecName, codec) -> row.put(codecName, measure(codec, value, iterations)));
+            results.add(row);
+        });
+        return results;
+    }
+
+    private static Map<String, Object> measure(RedisSerializer<Object> codec, Object value, int iterations) {
+        byte[] encoded = codec.serialize(value);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            codec.deserialize(codec.serialize(value));
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            encoded = codec.serialize(value);
+            long mid = System.nanoTime();
+            codec.deserialize(encoded);
+            decodeNanos += System.nanoTime() - mid;
+            encodeNanos += mid - start;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bytes", encoded.length);
+        stats.put("encodeMicros", encodeNanos / 1000 / Math.max(iterations, 1));
+        stats.put("decodeMicros", decodeNanos / 1000 / Math.max(iterations, 1));
+        return stats;
+    }
+}
@@ -0,0 +1,34 @@
+package movieapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// XFetch: refresh sớm ngẫu nhiên, xác suất tăng dần khi gần hết hạn và khi value tốn nhiều thời gian tính
+// now - computeMillis * beta * ln(rand) >= expiry  (beta = 0: chỉ refresh khi đã quá soft TTL)
+public class EarlyRefreshPolicy {
+    private final double beta;
+    private final Counter earlyRefreshes;
+
+    public EarlyRefreshPolicy(String cacheName, double beta, MeterRegistry meterRegistry) {
+        this.beta = beta;
+        this.earlyRefreshes = Counter.builder("cache.xfetch.early_refresh")
+                .description("Background refreshes triggered before the soft expiry")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    public boolean shouldRefresh(CacheEntry entry, long expireAt, long now) {
+        if (now >= expireAt) return true;
+        if (beta <= 0 || entry.getComputeMillis() <= 0) return false;
+
+        // 1 - nextDouble() nằm trong (0, 1] nên ln không bao giờ là -vô cực
+        double gap = entry.getComputeMillis() * beta * -Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+        if (now + gap >= expireAt) {
+            earlyRefreshes.increment();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package movieapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Component
+@Slf4j
+public class NearCacheInvalidator implements MessageListener {
+    public static final String CHANNEL = "cache:near:invalidate";
+    public static final String ALL_KEYS = "*";
+    private static final String SEPARATOR = "|";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // cacheName -> callback nhận key cần xoá (ALL_KEYS = xoá hết)
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+
+    public NearCacheInvalidator(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public void register(String cacheName, Consumer<String> onInvalidate) {
+        listeners.put(cacheName, onInvalidate);
+    }
+
+    public void publishEvict(String cacheName, Object key) {
+        publish(cacheName, String.valueOf(key));
+    }
+
+    //    MANY KEYS, ONE PIPELINED ROUND TRIP
+    public void publishEvictAll(String cacheName, Collection<?> keys) {
+        if (keys.isEmpty()) return;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] channel = CHANNEL.getBytes(StandardCharsets.UTF_8);
+                for (Object key : keys) {
+                    String message = nodeId + SEPARATOR + cacheName + SEPARATOR + key;
+                    connection.publish(channel, message.getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to broadcast near cache invalidation for {} keys of {}: {}", keys.size(), cacheName, e.getMessage());
+        }
+    }
+
+    public void publishClear(String cacheName) {
+        publish(cacheName, ALL_KEYS);
+    }
+
+    private void publish(String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to broadcast near cache invalidation {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\" + SEPARATOR, 3);
+        if (parts.length != 3) {
+            log.warn("⚠️ Ignoring malformed near cache message: {}", body);
+            return;
+        }
+
+        // Node tự gửi thì đã xoá local rồi
+        if (nodeId.equals(parts[0])) return;
+
+        Consumer<String> listener = listeners.get(parts[1]);
+        if (listener != null) {
+            listener.accept(parts[2]);
+            log.debug("🧹 Near cache invalidated by peer: {}::{}", parts[1], parts[2]);
+        }
+    }
+}
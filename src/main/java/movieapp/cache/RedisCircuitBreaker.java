@@ -0,0 +1,104 @@
+package movieapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Redis lỗi liên tiếp N lần -> OPEN: bỏ qua Redis (không chờ timeout), sau openMillis cho 1 request thử (HALF_OPEN)
+@Slf4j
+public class RedisCircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final Counter rejected;
+
+    public RedisCircuitBreaker(int failureThreshold, long openMillis, MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.rejected = Counter.builder("cache.redis.circuit.rejected")
+                .description("Redis calls skipped because the circuit was open")
+                .register(meterRegistry);
+        Gauge.builder("cache.redis.circuit.state", state, ref -> ref.get().ordinal())
+                .description("Redis circuit state (0 = closed, 1 = open, 2 = half-open)")
+                .register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isAvailable() {
+        return state.get() == State.CLOSED;
+    }
+
+    // ===================================
+    // GUARDED CALL (throws RedisConnectionFailureException when open)
+    // ===================================
+    public <T> T call(Supplier<T> redisCall) {
+        if (!allowRequest()) {
+            rejected.increment();
+            throw new RedisConnectionFailureException("Redis circuit is open");
+        }
+        try {
+            T result = redisCall.get();
+            recordSuccess();
+            return result;
+        } catch (DataAccessException e) {
+            recordFailure(e);
+            throw e;
+        } catch (RuntimeException e) {
+            // Lỗi không phải kết nối (serialize, data sai...) -> Redis vẫn trả lời
+            recordSuccess();
+            throw e;
+        }
+    }
+
+    public void run(Runnable redisCall) {
+        call(() -> {
+            redisCall.run();
+            return null;
+        });
+    }
+
+    private boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) return true;
+        if (current == State.OPEN && System.currentTimeMillis() - openedAt.get() >= openMillis) {
+            // Chỉ 1 thread được thử, các thread khác vẫn bị từ chối
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    private void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("✅ Redis reachable again, circuit closed");
+        }
+    }
+
+    private void recordFailure(DataAccessException e) {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt.set(System.currentTimeMillis());
+            state.set(State.OPEN);
+            log.warn("🔌 Redis circuit OPEN after {} failures ({}), serving local data for {}ms",
+                    failures, e.getMessage(), openMillis);
+        }
+    }
+}
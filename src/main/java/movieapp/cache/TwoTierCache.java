@@ -0,0 +1,397 @@
+package movieapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+public class TwoTierCache implements Cache {
+    private final String name;
+    private final RedisCache redisCache;
+    private final StringRedisTemplate redisTemplate;
+    private final com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> localCache;
+    private final NearCacheInvalidator invalidator;
+    private final Executor refreshExecutor;
+    private final SingleFlight singleFlight;
+    private final CacheValueNormalizer normalizer;
+    private final EarlyRefreshPolicy earlyRefreshPolicy;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final CacheTagIndex tagIndex;
+    private final CacheFingerprints fingerprints;
+    private final long softTtlMillis;
+    private final long hardTtlMillis;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    // Soft/hard expiry tính theo TTL còn lại trên Redis (hard = TTL của key)
+    record LocalEntry(CacheEntry entry, long softExpireAt, long hardExpireAt) {
+    }
+
+    public TwoTierCache(String name, RedisCache redisCache, StringRedisTemplate redisTemplate,
+                        com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> localCache,
+                        NearCacheInvalidator invalidator, Executor refreshExecutor,
+                        SingleFlight singleFlight, CacheValueNormalizer normalizer, EarlyRefreshPolicy earlyRefreshPolicy,
+                        RedisCircuitBreaker circuitBreaker, CacheTagIndex tagIndex, CacheFingerprints fingerprints,
+                        Duration softTtl, Duration hardTtl) {
+        this.name = name;
+        this.redisCache = redisCache;
+        this.redisTemplate = redisTemplate;
+        this.localCache = localCache;
+        this.invalidator = invalidator;
+        this.refreshExecutor = refreshExecutor;
+        this.singleFlight = singleFlight;
+        this.normalizer = normalizer;
+        this.earlyRefreshPolicy = earlyRefreshPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.tagIndex = tagIndex;
+        this.fingerprints = fingerprints;
+        this.softTtlMillis = softTtl.toMillis();
+        this.hardTtlMillis = hardTtl.toMillis();
+
+        invalidator.register(name, this::invalidateLocal);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    // ===================================
+    // READ: L1 (in-process) -> L2 (Redis), stale values included
+    // ===================================
+    @Override
+    public ValueWrapper get(Object key) {
+        LocalEntry current = lookup(key);
+        return current != null ? new SimpleValueWrapper(current.entry().getValue()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) return null;
+
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    // ===================================
+    // STALE-WHILE-REVALIDATE + XFETCH (@Cacheable sync = true)
+    // ===================================
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        LocalEntry current = lookup(key);
+        if (current != null) {
+            if (earlyRefreshPolicy.shouldRefresh(current.entry(), current.softExpireAt(), System.currentTimeMillis())) {
+                refreshAsync(key, valueLoader);
+            }
+            return (T) current.entry().getValue();
+        }
+
+        String localKey = String.valueOf(key);
+        try {
+            return singleFlight.execute(localKey, () -> {
+                // Caller trước có thể vừa load xong
+                LocalEntry loaded = localCache.getIfPresent(localKey);
+                if (loaded != null) return (T) loaded.entry().getValue();
+
+                long startTime = System.currentTimeMillis();
+                T value = valueLoader.call();
+                if (!isUsable(value)) {
+                    // Build lỗi / rỗng: trả cho caller nhưng không giữ 6h trong cache
+                    log.warn("⚠️ Load of {}::{} returned no data, not caching it", name, localKey);
+                    return value;
+                }
+                put(key, value, System.currentTimeMillis() - startTime);
+                return value;
+            });
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private void refreshAsync(Object key, Callable<?> valueLoader) {
+        String localKey = String.valueOf(key);
+        if (!refreshing.add(localKey)) return;
+
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    long startTime = System.currentTimeMillis();
+                    Object value = valueLoader.call();
+                    if (!isUsable(value)) {
+                        log.warn("⚠️ Background refresh of {}::{} returned no data, keeping stale value", name, localKey);
+                        return;
+                    }
+                    put(key, value, System.currentTimeMillis() - startTime);
+                    log.info("🔄 Background refreshed {}::{}", name, localKey);
+                } catch (Exception e) {
+                    log.warn("⚠️ Background refresh of {}::{} failed, keeping stale value: {}", name, localKey, e.getMessage());
+                } finally {
+                    refreshing.remove(localKey);
+                }
+            }, refreshExecutor);
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(localKey);
+            log.warn("⚠️ Refresh executor busy, serving stale {}::{}", name, localKey);
+        }
+    }
+
+    // ===================================
+    // WRITE: Redis first, then local + notify peers
+    // ===================================
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, 0L);
+    }
+
+    //    Fingerprint tính ngay sau khi build (response upstream vừa memo): refresh sau mới bỏ qua được section không đổi
+    public void put(Object key, Object value, long computeMillis) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cache '" + name + "' does not allow 'null' values");
+        }
+        if (!isUsable(value)) {
+            log.warn("⚠️ Refusing to cache empty value for {}::{}", name, key);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String fingerprint = fingerprints.fingerprintOf(name, String.valueOf(key));
+        CacheEntry entry = new CacheEntry(value, now, computeMillis, fingerprint);
+
+        localCache.put(String.valueOf(key), new LocalEntry(entry, now + softTtlMillis, now + hardTtlMillis));
+        try {
+            // Redis giữ bản normalized (ref theo slug), L1 giữ bản đầy đủ
+            circuitBreaker.run(() -> {
+                redisCache.put(key, new CacheEntry(normalizer.normalize(value), now, computeMillis, fingerprint));
+                tagIndex.tag(name, List.of(String.valueOf(key)), hardTtlMillis);
+            });
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Redis unavailable, kept {}::{} in local cache only: {}", name, key, e.getMessage());
+            return;
+        }
+        invalidator.publishEvict(name, key);
+    }
+
+    //    MANY ENTRIES: one pipelined SET round trip + one pipelined publish
+    public void putAll(Map<String, Object> values, Map<String, Long> computeMillis, Map<String, String> fingerprints) {
+        if (values.isEmpty()) return;
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        long now = System.currentTimeMillis();
+
+        Map<String, CacheEntry> entries = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if (value == null) {
+                throw new IllegalArgumentException("Cache '" + name + "' does not allow 'null' values");
+            }
+            entries.put(key, new CacheEntry(value, now, computeMillis.getOrDefault(key, 0L), fingerprints.get(key)));
+        });
+
+        entries.forEach((key, entry) -> localCache.put(key, new LocalEntry(entry, now + softTtlMillis, now + hardTtlMillis)));
+        try {
+            circuitBreaker.run(() -> {
+                Map<String, Object> normalized = normalizer.normalizeAll(new LinkedHashMap<>(values));
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    entries.forEach((key, entry) -> connection.stringCommands().set(
+                            ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(name) + key)),
+                            ByteUtils.getBytes(config.getValueSerializationPair().write(new CacheEntry(
+                                    normalized.get(key), entry.getCreatedAt(), entry.getComputeMillis(), entry.getFingerprint()))),
+                            Expiration.milliseconds(hardTtlMillis),
+                            RedisStringCommands.SetOption.upsert()));
+                    tagIndex.writeTags(connection, name, entries.keySet(), hardTtlMillis);
+                    return null;
+                });
+            });
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Redis unavailable, kept {} entries of {} in local cache only: {}", entries.size(), name, e.getMessage());
+            return;
+        }
+        invalidator.publishEvictAll(name, entries.keySet());
+    }
+
+    //    FINGERPRINT OF THE CURRENT ENTRY (null = missing / legacy)
+    public String fingerprintOf(Object key) {
+        LocalEntry current = lookup(key);
+        return current != null ? current.entry().getFingerprint() : null;
+    }
+
+    //    UNCHANGED UPSTREAM: keep value, only push expiry back (one pipelined PEXPIRE)
+    public void touchAll(Collection<String> keys) {
+        if (keys.isEmpty()) return;
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+
+        // Ghi lại movie records dùng chung để TTL của chúng không hết trước section
+        Map<String, Object> current = new LinkedHashMap<>();
+        for (String key : keys) {
+            LocalEntry entry = lookup(key);
+            if (entry != null) current.put(key, entry.entry().getValue());
+        }
+        normalizer.normalizeAll(current);
+
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            LocalEntry local = localCache.getIfPresent(key);
+            if (local != null) {
+                localCache.put(key, new LocalEntry(local.entry(), now + softTtlMillis, now + hardTtlMillis));
+            }
+        }
+        try {
+            circuitBreaker.run(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.keyCommands().pExpire(
+                            ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(name) + key)),
+                            hardTtlMillis);
+                }
+                tagIndex.writeTags(connection, name, keys, hardTtlMillis);
+                return null;
+            }));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Redis unavailable, extended {} entries of {} in local cache only: {}", keys.size(), name, e.getMessage());
+            return;
+        }
+        // Node khác đọc lại PTTL mới thay vì coi entry là stale
+        invalidator.publishEvictAll(name, keys);
+    }
+
+    @Override
+    public void evict(Object key) {
+        // Redis lỗi / breaker mở: vẫn bỏ L1 của node này, lỗi trả về nơi gọi
+        try {
+            circuitBreaker.run(() -> redisCache.evict(key));
+        } finally {
+            localCache.invalidate(String.valueOf(key));
+        }
+        invalidator.publishEvict(name, key);
+    }
+
+    //    MANY KEYS: one multi-key DEL + one pipelined publish (tag invalidation)
+    public void evictAll(Collection<String> keys) {
+        if (keys.isEmpty()) return;
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        try {
+            circuitBreaker.run(() -> redisTemplate.delete(keys.stream().map(key -> config.getKeyPrefixFor(name) + key).toList()));
+        } finally {
+            localCache.invalidateAll(keys);
+        }
+        invalidator.publishEvictAll(name, keys);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            circuitBreaker.run(redisCache::clear);
+        } finally {
+            localCache.invalidateAll();
+        }
+        invalidator.publishClear(name);
+    }
+
+    //    DROP L1 ON EVERY NODE (value in Redis was changed outside this cache)
+    public void invalidateNearCache(Object key) {
+        localCache.invalidate(String.valueOf(key));
+        invalidator.publishEvict(name, key);
+    }
+
+    //    CALLBACK FROM PUB/SUB
+    private void invalidateLocal(String key) {
+        if (NearCacheInvalidator.ALL_KEYS.equals(key)) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    // ===================================
+    // HELPERS
+    // ===================================
+    private LocalEntry lookup(Object key) {
+        String localKey = String.valueOf(key);
+        long now = System.currentTimeMillis();
+
+        LocalEntry local = localCache.getIfPresent(localKey);
+        if (local != null && now < local.hardExpireAt()) return local;
+
+        LocalEntry remote;
+        try {
+            remote = circuitBreaker.call(() -> readRemote(localKey, now));
+        } catch (DataAccessException e) {
+            // Redis down: L1 đã quá hard TTL vẫn hơn là gọi Ophim cho mọi request
+            log.debug("⚠️ Redis unavailable for {}::{}: {}", name, localKey, e.getMessage());
+            return local;
+        }
+        if (remote != null) {
+            localCache.put(localKey, remote);
+            log.debug("📥 Near cache filled from Redis: {}::{}", name, localKey);
+        } else if (local != null) {
+            localCache.invalidate(localKey);
+        }
+        return remote;
+    }
+
+    //    GET + PTTL IN ONE ROUND TRIP
+    private LocalEntry readRemote(String key, long now) {
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        byte[] redisKey = ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(name) + key));
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(redisKey);
+            connection.keyCommands().pTtl(redisKey);
+            return null;
+        }, RedisSerializer.byteArray());
+
+        byte[] raw = (byte[]) results.get(0);
+        if (raw == null) return null;
+
+        Object decoded = config.getValueSerializationPair().read(ByteBuffer.wrap(raw));
+        if (decoded == null) return null;
+
+        Long ttlMillis = (Long) results.get(1);
+        long hardExpireAt = now + (ttlMillis != null && ttlMillis > 0 ? ttlMillis : hardTtlMillis);
+
+        CacheEntry stored = decoded instanceof CacheEntry entry ? entry : CacheEntry.legacy(decoded);
+        Object value = normalizer.hydrate(stored.getValue());
+        if (value == null) return null;
+
+        CacheEntry entry = new CacheEntry(value, stored.getCreatedAt(), stored.getComputeMillis(), stored.getFingerprint());
+        if (decoded instanceof CacheEntry) {
+            return new LocalEntry(entry, hardExpireAt - (hardTtlMillis - softTtlMillis), hardExpireAt);
+        }
+        return new LocalEntry(entry, now, hardExpireAt);
+    }
+
+    static boolean isUsable(Object value) {
+        if (value == null) return false;
+        if (value instanceof Collection<?> collection) return !collection.isEmpty();
+        if (value instanceof Map<?, ?> map) return !map.isEmpty();
+        return true;
+    }
+}
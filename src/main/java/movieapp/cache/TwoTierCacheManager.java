@@ -0,0 +1,102 @@
+package movieapp.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+@Slf4j
+public class TwoTierCacheManager implements CacheManager {
+    // Giá trị không serialize được thì tính tạm 64KB
+    private static final int FALLBACK_WEIGHT_BYTES = 64 * 1024;
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final NearCacheInvalidator invalidator;
+    private final Executor refreshExecutor;
+    private final MeterRegistry meterRegistry;
+    private final CacheValueNormalizer normalizer;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final CacheTagIndex tagIndex;
+    private final CacheFingerprints fingerprints;
+    private final Set<String> nearCacheNames;
+    private final long maxWeightBytes;
+    private final Duration localTtl;
+    private final Duration softTtl;
+    private final Duration hardTtl;
+    private final double xfetchBeta;
+    private final ObjectMapper sizeMapper = new ObjectMapper();
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(RedisCacheManager redisCacheManager, StringRedisTemplate redisTemplate,
+                               NearCacheInvalidator invalidator, Executor refreshExecutor,
+                               MeterRegistry meterRegistry, CacheValueNormalizer normalizer, RedisCircuitBreaker circuitBreaker, CacheTagIndex tagIndex, CacheFingerprints fingerprints, Set<String> nearCacheNames, long maxWeightBytes, Duration localTtl,
+                               Duration softTtl, Duration hardTtl, double xfetchBeta) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.invalidator = invalidator;
+        this.refreshExecutor = refreshExecutor;
+        this.meterRegistry = meterRegistry;
+        this.normalizer = normalizer;
+        this.circuitBreaker = circuitBreaker;
+        this.tagIndex = tagIndex;
+        this.fingerprints = fingerprints;
+        this.nearCacheNames = nearCacheNames;
+        this.maxWeightBytes = maxWeightBytes;
+        this.localTtl = localTtl;
+        this.softTtl = softTtl;
+        this.hardTtl = hardTtl;
+        this.xfetchBeta = xfetchBeta;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    private Cache createCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (!(redisCache instanceof RedisCache l2) || !nearCacheNames.contains(name)) {
+            return redisCache;
+        }
+
+        log.info("🧊 Near cache enabled for '{}' (max {} bytes, soft ttl {}, hard ttl {}, xfetch beta {})",
+                name, maxWeightBytes, softTtl, hardTtl, xfetchBeta);
+        com.github.benmanes.caffeine.cache.Cache<String, TwoTierCache.LocalEntry> localCache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, TwoTierCache.LocalEntry value) -> estimateSize(value.entry().getValue()))
+                .expireAfterWrite(localTtl)
+                .build();
+
+        return new TwoTierCache(name, l2, redisTemplate, localCache, invalidator, refreshExecutor,
+                new SingleFlight(name, meterRegistry), normalizer, new EarlyRefreshPolicy(name, xfetchBeta, meterRegistry),
+                circuitBreaker, tagIndex, fingerprints, softTtl, hardTtl);
+    }
+
+    //    HELPER: ESTIMATE ENTRY SIZE (JSON bytes)
+    private int estimateSize(Object value) {
+        try {
+            return sizeMapper.writeValueAsBytes(value).length;
+        } catch (Exception e) {
+            log.debug("⚠️ Could not estimate near cache entry size: {}", e.getMessage());
+            return FALLBACK_WEIGHT_BYTES;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package movieapp.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Cửa sổ N call gần nhất: tỉ lệ lỗi hoặc tỉ lệ call chậm vượt ngưỡng -> OPEN (không gọi Ophim)
+// Sau openMillis cho vài call thử (HALF_OPEN): tất cả ổn -> CLOSED, 1 call lỗi/chậm -> OPEN lại
+@Slf4j
+public class OphimCircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public OphimCircuitBreaker(int windowSize, int minimumCalls, double failureRatePercent, double slowCallRatePercent,
+                               long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRatePercent / 100.0;
+        this.slowCallRateThreshold = slowCallRatePercent / 100.0;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+    }
+
+    // ===================================
+    // BEFORE A CALL
+    // ===================================
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+            log.info("🟡 Ophim circuit HALF-OPEN, letting {} trial calls through", halfOpenCalls);
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && trialsStarted < halfOpenCalls) {
+            trialsStarted++;
+            return true;
+        }
+        return false;
+    }
+
+    //    ADMITTED BUT NEVER SENT (rate limit / bulkhead rejected it)
+    public synchronized void releaseUnused() {
+        if (state == State.HALF_OPEN && trialsStarted > 0) trialsStarted--;
+    }
+
+    // ===================================
+    // AFTER A CALL
+    // ===================================
+    public synchronized void record(long elapsedMillis, boolean failure) {
+        boolean tooSlow = elapsedMillis >= slowCallMillis;
+        if (state == State.HALF_OPEN) {
+            if (failure || tooSlow) {
+                open("trial call " + (failure ? "failed" : "took " + elapsedMillis + "ms"));
+            } else if (++trialsSucceeded >= halfOpenCalls) {
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                log.info("✅ Ophim circuit CLOSED, trial calls succeeded");
+            }
+            return;
+        }
+        if (state == State.OPEN) return;   // kết quả về muộn của call trước khi mở
+
+        failed[next] = failure;
+        slow[next] = tooSlow;
+        next = (next + 1) % failed.length;
+        recorded = Math.min(recorded + 1, failed.length);
+        if (recorded < minimumCalls) return;
+
+        double failureRate = failureRate();
+        double slowCallRate = slowCallRate();
+        if (failureRate >= failureRateThreshold) {
+            open(String.format("%.0f%% of the last %d calls failed", failureRate * 100, recorded));
+        } else if (slowCallRate >= slowCallRateThreshold) {
+            open(String.format("%.0f%% of the last %d calls took >= %dms", slowCallRate * 100, recorded, slowCallMillis));
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        log.warn("🔌 Ophim circuit OPEN ({}), failing fast for {}ms", reason, openMillis);
+    }
+
+    // ===================================
+    // STATE (metrics)
+    // ===================================
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double failureRate() {
+        return rate(failed);
+    }
+
+    public synchronized double slowCallRate() {
+        return rate(slow);
+    }
+
+    private double rate(boolean[] outcomes) {
+        if (recorded == 0) return 0;
+        int count = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (outcomes[i]) count++;
+        }
+        return (double) count / recorded;
+    }
+}
@@ -1,14 +1,44 @@
 package movieapp.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import movieapp.client.OphimResilience.Lane;
 import movieapp.dto.OphimResponse.OphimHomepageResponse;
 import movieapp.dto.OphimResponse.OphimListResponse;
 import movieapp.dto.OphimResponse.OphimMovieDetailResponse;
+import movieapp.util.Deadline;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 @Component
 @Slf4j
@@ -16,10 +46,36 @@ public class OphimClient {
     @Value("${ophim.baseurl}")
     private String baseUrl;
 
+    @Value("${app.ophim.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${app.cache.api-timeout-seconds:10}")
+    private long totalTimeoutSeconds;
+
     private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final PermitQueue hostPermits;
+    private final ObjectMapper objectMapper;
+    private final UpstreamFailureCache failureCache;
+    private final OphimResilience resilience;
+    private final OphimStreamDecoder streamDecoder;
 
-    public OphimClient(RestTemplate restTemplate) {
+    public OphimClient(RestTemplate restTemplate, HttpClient ophimHttpClient, PermitQueue ophimHostPermits,
+                       ObjectMapper objectMapper, UpstreamFailureCache failureCache, OphimResilience resilience,
+                       OphimStreamDecoder streamDecoder) {
         this.restTemplate = restTemplate;
+        this.httpClient = ophimHttpClient;
+        this.hostPermits = ophimHostPermits;
+        this.objectMapper = objectMapper;
+        this.failureCache = failureCache;
+        this.resilience = resilience;
+        this.streamDecoder = streamDecoder;
+    }
+
+    //    BODY -> DTO (streaming decoder hoặc ObjectMapper)
+    @FunctionalInterface
+    private interface BodyDecoder<T> {
+        T decode(InputStream body) throws IOException;
     }
 
     public OphimHomepageResponse getHomepage() {
@@ -27,12 +83,16 @@ public class OphimClient {
         log.info("🔄 Calling Ophim API: {}", url);
 
         try {
-            OphimHomepageResponse response = restTemplate.getForObject(url, OphimHomepageResponse.class);
+            OphimHomepageResponse response = execute("home", "home", Lane.BACKGROUND,
+                    () -> restTemplate.execute(url, HttpMethod.GET, null,
+                            httpResponse -> streamDecoder.decodeHomepage(httpResponse.getBody(), OphimItemProjection.CARD)));
             log.info("✅ Received {} items from Ophim",
                     response != null && response.getData() != null
                             ? response.getData().getItems().size()
                             : 0);
             return response;
+        } catch (UpstreamUnavailableException | Deadline.DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Error calling Ophim API: {}", e.getMessage());
             throw new RuntimeException("Failed to fetch homepage from Ophim", e);
@@ -40,13 +100,21 @@ public class OphimClient {
     }
 
     public OphimMovieDetailResponse getMovieDetail(String slug) {
+        return getMovieDetail(slug, Lane.BACKGROUND);
+    }
+
+    //    USER PATH (vd: tạo favorite) -> lane riêng, không xếp hàng sau refresh
+    public OphimMovieDetailResponse getMovieDetail(String slug, Lane lane) {
         String url = baseUrl + "/phim/" + slug;
         log.debug("🔄 Calling Ophim API for movie: {}", slug);
 
         try {
-            OphimMovieDetailResponse response = restTemplate.getForObject(url, OphimMovieDetailResponse.class);
+            OphimMovieDetailResponse response = execute("detail", "detail:" + slug, lane,
+                    () -> restTemplate.getForObject(url, OphimMovieDetailResponse.class));
             log.debug("✅ Received detail for: {}", slug);
             return response;
+        } catch (UpstreamUnavailableException | Deadline.DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Error fetching movie detail for {}: {}", slug, e.getMessage());
             throw new RuntimeException("Failed to fetch movie: " + slug, e);
@@ -54,26 +122,200 @@ public class OphimClient {
     }
 
     public OphimListResponse getListBySlug(String slug, Map<String, String> params) {
-        StringBuilder url = new StringBuilder(baseUrl + "/danh-sach/" + slug);
-        if (params != null && !params.isEmpty()) {
-            url.append("?");
-            params.forEach((key, value) -> {
-                url.append(key).append("=").append(value).append("&");
-            });
-            url.deleteCharAt(url.length() - 1);
-        }
+        return getListBySlug(slug, params, OphimItemProjection.CARD, Integer.MAX_VALUE);
+    }
+
+    //    SECTION: chỉ đọc maxItems item đầu, mỗi item chỉ các field trong projection
+    public OphimListResponse getListBySlug(String slug, Map<String, String> params,
+                                           OphimItemProjection projection, int maxItems) {
+        String url = listUrl(slug, params);
         log.debug("🔄 Calling Ophim API: {}", url);
 
         try {
-            OphimListResponse response = restTemplate.getForObject(url.toString(), OphimListResponse.class);
+            OphimListResponse response = execute("list", listEndpoint(slug, params), Lane.BACKGROUND,
+                    () -> restTemplate.execute(url, HttpMethod.GET, null,
+                            httpResponse -> streamDecoder.decodeList(httpResponse.getBody(), projection, maxItems)));
             log.debug("✅ Received {} items",
                     response != null && response.getData() != null
                             ? response.getData().getItems().size()
                             : 0);
             return response;
+        } catch (UpstreamUnavailableException | Deadline.DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Error calling Ophim API {}: {}", url, e.getMessage());
             throw new RuntimeException("Failed to fetch list: " + slug, e);
         }
     }
+
+    //    BLOCKING CALL: deadline -> negative cache -> circuit / rate limit / bulkhead -> Ophim
+    //    UpstreamUnavailableException = chưa gọi Ophim (fail fast), các lỗi khác = Ophim đã được gọi
+    private <T> T execute(String endpoint, String target, Lane lane, Supplier<T> request) {
+        Deadline.check("ophim " + target);
+        failureCache.check(target);
+        resilience.enter(endpoint, lane, target, budgetMillis());
+
+        long startNanos = System.nanoTime();
+        RuntimeException failure = null;
+        try {
+            T response = request.get();
+            failureCache.recordSuccess();
+            return response;
+        } catch (RuntimeException e) {
+            failure = e;
+            failureCache.recordFailure(target, e);
+            throw e;
+        } finally {
+            resilience.exit(lane);
+            resilience.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), failure);
+        }
+    }
+
+    private long budgetMillis() {
+        long totalMillis = TimeUnit.SECONDS.toMillis(totalTimeoutSeconds);
+        return Deadline.current().map(deadline -> Math.min(deadline.remainingMillis(), totalMillis)).orElse(totalMillis);
+    }
+
+    // ===================================
+    // ASYNC: không giữ thread trong lúc chờ Ophim (fan-out theo giới hạn / host, không theo thread pool)
+    // ===================================
+    public CompletableFuture<OphimHomepageResponse> getHomepageAsync() {
+        return sendAsync("home", "home", baseUrl + "/home",
+                body -> streamDecoder.decodeHomepage(body, OphimItemProjection.CARD));
+    }
+
+    public CompletableFuture<OphimMovieDetailResponse> getMovieDetailAsync(String slug) {
+        return sendAsync("detail", "detail:" + slug, baseUrl + "/phim/" + slug,
+                body -> objectMapper.readValue(body, OphimMovieDetailResponse.class));
+    }
+
+    public CompletableFuture<OphimListResponse> getListBySlugAsync(String slug, Map<String, String> params) {
+        return sendAsync("list", listEndpoint(slug, params), listUrl(slug, params),
+                body -> streamDecoder.decodeList(body, OphimItemProjection.CARD, Integer.MAX_VALUE));
+    }
+
+    //    RATE LIMIT WAIT -> LANE SLOT -> HOST PERMIT -> sendAsync -> decode
+    //    All bounded by the total timeout (and the caller's Deadline), nothing parks a thread
+    private <T> CompletableFuture<T> sendAsync(String endpoint, String target, String url, BodyDecoder<T> decoder) {
+        long budget;
+        long rateWait;
+        try {
+            Deadline.check("ophim " + target);
+            failureCache.check(target);
+            budget = budgetMillis();
+            rateWait = resilience.admit(endpoint, Lane.BACKGROUND, target, budget);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(UriComponentsBuilder.fromUriString(url).build().encode().toUri())
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET()
+                .build();
+        String host = request.uri().getHost();
+        log.debug("🔄 Calling Ophim API (async): {}", url);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Bước đang chờ (để huỷ khi hết giờ) + permit đã giữ (để trả khi xong, kể cả khi bị huỷ giữa chừng)
+        AtomicReference<CompletableFuture<?>> pending = new AtomicReference<>();
+        AtomicBoolean laneHeld = new AtomicBoolean();
+        AtomicBoolean hostHeld = new AtomicBoolean();
+        AtomicLong sentAt = new AtomicLong();
+
+        CompletableFuture<Void> start = rateWait > 0
+                ? CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(rateWait, TimeUnit.MILLISECONDS))
+                : CompletableFuture.completedFuture(null);
+        pending.set(start);
+        start.thenCompose(ready -> {
+                    CompletableFuture<Void> slot = resilience.enterAsync(Lane.BACKGROUND);
+                    pending.set(slot);
+                    return slot;
+                })
+                .thenCompose(slot -> {
+                    laneHeld.set(true);
+                    if (result.isDone()) throw new CancellationException("timed out");
+                    CompletableFuture<Void> permit = hostPermits.acquire(host);
+                    pending.set(permit);
+                    return permit;
+                })
+                .thenCompose(permit -> {
+                    hostHeld.set(true);
+                    if (result.isDone()) throw new CancellationException("timed out");
+                    sentAt.set(System.nanoTime());
+                    CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                    pending.set(exchange);
+                    return exchange;
+                })
+                .whenComplete((response, error) -> {
+                    if (hostHeld.get()) hostPermits.release(host);
+                    if (laneHeld.get()) resilience.exit(Lane.BACKGROUND);
+                })
+                .thenApply(response -> decode(response, decoder))
+                .whenComplete((value, error) -> {
+                    if (error == null) result.complete(value);
+                    else result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                });
+
+        CompletableFuture.delayedExecutor(budget, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!result.completeExceptionally(new TimeoutException("Ophim " + target + " exceeded " + budget + "ms"))) return;
+            // Bỏ hàng đợi (rate / lane / host) hoặc huỷ exchange đang chạy; permit đã giữ được trả ở whenComplete
+            CompletableFuture<?> step = pending.get();
+            if (step != null) step.cancel(true);
+        });
+
+        return result.whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (sentAt.get() == 0) {
+                // Hết giờ khi còn xếp hàng: Ophim chưa được gọi, không tính là lỗi của Ophim
+                resilience.abandon();
+                log.warn("⏳ Ophim {} not sent within {}ms: {}", target, budget, cause.getMessage());
+                return;
+            }
+            resilience.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt.get()), cause);
+            if (error == null) {
+                failureCache.recordSuccess();
+                log.debug("✅ Received {} (async)", target);
+            } else {
+                log.error("❌ Error calling Ophim API {}: {}", url, cause.getMessage());
+                failureCache.recordFailure(target, cause instanceof Exception exception ? exception : new RuntimeException(cause));
+            }
+        });
+    }
+
+    //    STATUS -> same exceptions as RestTemplate, gunzip, JSON
+    private <T> T decode(HttpResponse<byte[]> response, BodyDecoder<T> decoder) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, "", null, response.body(), StandardCharsets.UTF_8);
+        }
+        if (status.isError()) {
+            throw HttpServerErrorException.create(status, "", null, response.body(), StandardCharsets.UTF_8);
+        }
+        try {
+            boolean gzip = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).filter("gzip"::equalsIgnoreCase).isPresent();
+            InputStream body = new ByteArrayInputStream(response.body());
+            return decoder.decode(gzip ? new GZIPInputStream(body) : body);
+        } catch (IOException e) {
+            throw new RestClientException("Could not decode Ophim response: " + e.getMessage(), e);
+        }
+    }
+
+    //    HELPER: /danh-sach/{slug}?k=v&...
+    private String listUrl(String slug, Map<String, String> params) {
+        StringBuilder url = new StringBuilder(baseUrl + "/danh-sach/" + slug);
+        if (params != null && !params.isEmpty()) {
+            url.append("?");
+            params.forEach((key, value) -> {
+                url.append(key).append("=").append(value).append("&");
+            });
+            url.deleteCharAt(url.length() - 1);
+        }
+        return url.toString();
+    }
+
+    private static String listEndpoint(String slug, Map<String, String> params) {
+        return "list:" + slug + (params != null ? new TreeMap<>(params).toString() : "");
+    }
 }
@@ -0,0 +1,265 @@
+package movieapp.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheEntry;
+import movieapp.cache.RedisCircuitBreaker;
+import movieapp.client.OphimResilience.Lane;
+import movieapp.dto.OphimResponse.OphimMovieDetailResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Cache movie detail Ophim theo slug, dùng chung cho mọi nơi cần /phim/{slug} (section, favorite...)
+// L1 Caffeine -> L2 Redis ophim::detail::{slug} -> Ophim, cả 2 tầng giữ entry lâu (validated-ttl)
+// - getMany (section): item trong list có modified.time -> dùng lại tới khi modified.time đổi
+// - get (favorite) không có gì để so: entry chỉ còn tươi trong TTL theo tuổi modified.time
+@Component
+@Slf4j
+public class OphimDetailCache {
+    private static final String KEY_PREFIX = "ophim::detail::";
+
+    private final OphimClient ophimClient;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final Cache<String, Entry> localCache;
+    // 1 call Ophim / slug tại 1 thời điểm (section song song cùng cần 1 phim)
+    private final Map<String, CompletableFuture<OphimMovieDetailResponse>> inFlight = new ConcurrentHashMap<>();
+    private final long minTtlMillis;
+    private final long maxTtlMillis;
+    private final double ttlAgeRatio;
+    private final long validatedTtlMillis;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    private record Entry(OphimMovieDetailResponse response, long fetchedAt) {
+    }
+
+    public OphimDetailCache(OphimClient ophimClient, RedisTemplate<String, Object> redisTemplate,
+                            RedisCircuitBreaker redisCircuitBreaker, MeterRegistry meterRegistry,
+                            @Value("${app.ophim.detail-cache.min-ttl-minutes:10}") long minTtlMinutes,
+                            @Value("${app.ophim.detail-cache.max-ttl-hours:24}") long maxTtlHours,
+                            @Value("${app.ophim.detail-cache.ttl-age-ratio:0.1}") double ttlAgeRatio,
+                            @Value("${app.ophim.detail-cache.validated-ttl-hours:168}") long validatedTtlHours,
+                            @Value("${app.ophim.detail-cache.local-max-entries:2000}") long localMaxEntries) {
+        this.ophimClient = ophimClient;
+        this.redisTemplate = redisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.minTtlMillis = TimeUnit.MINUTES.toMillis(minTtlMinutes);
+        this.maxTtlMillis = TimeUnit.HOURS.toMillis(maxTtlHours);
+        this.ttlAgeRatio = ttlAgeRatio;
+        this.validatedTtlMillis = TimeUnit.HOURS.toMillis(validatedTtlHours);
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxEntries)
+                .expireAfterWrite(Duration.ofMillis(validatedTtlMillis))
+                .build();
+        this.localHits = lookups(meterRegistry, "local");
+        this.redisHits = lookups(meterRegistry, "redis");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    // ===================================
+    // ONE SLUG, BLOCKING (user path: favorite...)
+    // ===================================
+    public OphimMovieDetailResponse get(String slug, Lane lane) {
+        Entry local = localCache.getIfPresent(slug);
+        if (local != null && fresh(local)) {
+            localHits.increment();
+            return local.response();
+        }
+
+        Entry shared = readShared(List.of(slug)).get(slug);
+        if (shared != null && fresh(shared)) {
+            redisHits.increment();
+            localCache.put(slug, shared);
+            return shared.response();
+        }
+
+        misses.increment();
+        OphimMovieDetailResponse response = ophimClient.getMovieDetail(slug, lane);
+        if (cacheable(response)) {
+            Entry entry = new Entry(response, System.currentTimeMillis());
+            localCache.put(slug, entry);
+            writeShared(Map.of(slug, entry));
+        }
+        return response;
+    }
+
+    // ===================================
+    // MANY ITEMS, NON-BLOCKING (section fan-out)
+    // Entry dùng lại khi modified.time khớp item trong list (bất kể tuổi) -> chỉ phim vừa đổi mới gọi Ophim
+    // ===================================
+    public Map<String, CompletableFuture<OphimMovieDetailResponse>> getMany(List<OphimMovieItem> items) {
+        Map<String, CompletableFuture<OphimMovieDetailResponse>> results = new LinkedHashMap<>();
+        Map<String, String> expectedModified = new LinkedHashMap<>();
+        List<String> remoteSlugs = new ArrayList<>();
+        for (OphimMovieItem item : items) {
+            String slug = item.getSlug();
+            if (slug == null || expectedModified.containsKey(slug)) continue;
+            expectedModified.put(slug, modifiedTime(item));
+            Entry local = localCache.getIfPresent(slug);
+            if (local != null && reusable(local, expectedModified.get(slug))) {
+                localHits.increment();
+                results.put(slug, CompletableFuture.completedFuture(local.response()));
+            } else {
+                remoteSlugs.add(slug);
+            }
+        }
+
+        //    L2: one MGET for everything L1 did not have
+        Map<String, Entry> shared = readShared(remoteSlugs);
+        List<CompletableFuture<?>> fetches = new ArrayList<>();
+        Map<String, Entry> fetched = new ConcurrentHashMap<>();
+        for (String slug : remoteSlugs) {
+            Entry cached = shared.get(slug);
+            if (cached != null && reusable(cached, expectedModified.get(slug))) {
+                redisHits.increment();
+                localCache.put(slug, cached);
+                results.put(slug, CompletableFuture.completedFuture(cached.response()));
+                continue;
+            }
+            misses.increment();
+            CompletableFuture<OphimMovieDetailResponse> fetch = fetchAsync(slug, fetched);
+            results.put(slug, fetch);
+            fetches.add(fetch);
+        }
+
+        //    WRITE BACK: one pipelined SET EX once every fetch has settled
+        if (!fetches.isEmpty()) {
+            CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new))
+                    .whenComplete((ignored, error) -> writeShared(fetched));
+        }
+        log.debug("📦 Movie detail cache: {} items, {} from Ophim", results.size(), fetches.size());
+        return results;
+    }
+
+    private CompletableFuture<OphimMovieDetailResponse> fetchAsync(String slug, Map<String, Entry> fetched) {
+        CompletableFuture<OphimMovieDetailResponse> existing = inFlight.get(slug);
+        if (existing != null) return existing;
+
+        CompletableFuture<OphimMovieDetailResponse> created = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(slug, created);
+        if (existing != null) return existing;
+
+        ophimClient.getMovieDetailAsync(slug).whenComplete((response, error) -> {
+            inFlight.remove(slug, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+                return;
+            }
+            if (cacheable(response)) {
+                Entry entry = new Entry(response, System.currentTimeMillis());
+                localCache.put(slug, entry);
+                fetched.put(slug, entry);
+            }
+            created.complete(response);
+        });
+        return created;
+    }
+
+    // ===================================
+    // FRESHNESS WITHOUT modified.time: tỉ lệ theo tuổi của modified.time, kẹp trong [min, max]
+    // ===================================
+    private long ttlMillis(OphimMovieDetailResponse response) {
+        String modified = modifiedTime(response.getData().getItem());
+        if (modified == null) return minTtlMillis;
+        try {
+            long ageMillis = Math.max(0, System.currentTimeMillis() - Instant.parse(modified).toEpochMilli());
+            return Math.max(minTtlMillis, Math.min(maxTtlMillis, (long) (ageMillis * ttlAgeRatio)));
+        } catch (DateTimeParseException e) {
+            return minTtlMillis;
+        }
+    }
+
+    private boolean fresh(Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt() <= ttlMillis(entry.response());
+    }
+
+    //    modified.time không có trong list -> chỉ chấp nhận entry còn tươi
+    private boolean reusable(Entry entry, String expectedModified) {
+        if (expectedModified == null) return fresh(entry);
+        return expectedModified.equals(modifiedTime(entry.response().getData().getItem()));
+    }
+
+    //    L2 READ (Redis down -> như miss)
+    private Map<String, Entry> readShared(List<String> slugs) {
+        Map<String, Entry> found = new LinkedHashMap<>();
+        if (slugs.isEmpty()) return found;
+        try {
+            List<Object> values = redisCircuitBreaker.call(() ->
+                    redisTemplate.opsForValue().multiGet(slugs.stream().map(OphimDetailCache::key).toList()));
+            for (int i = 0; values != null && i < slugs.size(); i++) {
+                Object value = values.get(i);
+                if (value instanceof CacheEntry entry && entry.getValue() instanceof OphimMovieDetailResponse response && cacheable(response)) {
+                    found.put(slugs.get(i), new Entry(response, entry.getCreatedAt()));
+                } else if (value instanceof OphimMovieDetailResponse response && cacheable(response)) {
+                    // Bản ghi trước khi có fetchedAt: chỉ dùng lại khi modified.time khớp
+                    found.put(slugs.get(i), new Entry(response, 0L));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Movie detail cache read skipped for {} slugs: {}", slugs.size(), e.getMessage());
+        }
+        return found;
+    }
+
+    //    L2 WRITE: pipelined SET EX (validated-ttl), kèm fetchedAt cho get()
+    private void writeShared(Map<String, Entry> entries) {
+        if (entries.isEmpty()) return;
+
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        try {
+            redisCircuitBreaker.run(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                entries.forEach((slug, entry) -> connection.stringCommands().set(
+                        key(slug).getBytes(StandardCharsets.UTF_8),
+                        valueSerializer.serialize(new CacheEntry(entry.response(), entry.fetchedAt(), 0L)),
+                        Expiration.milliseconds(validatedTtlMillis), RedisStringCommands.SetOption.upsert()));
+                return null;
+            }));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Could not store {} movie details: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    private static boolean cacheable(OphimMovieDetailResponse response) {
+        return response != null && response.getData() != null && response.getData().getItem() != null;
+    }
+
+    public static String modifiedTime(OphimMovieItem item) {
+        return item != null && item.getModified() != null ? item.getModified().getTime() : null;
+    }
+
+    private static String key(String slug) {
+        return KEY_PREFIX + slug;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ophim.detail.cache")
+                .description("Movie detail lookups by the tier that answered them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package movieapp.client;
+
+import java.util.Set;
+
+// Field JSON của 1 item Ophim được materialize; field khác parser chỉ đọc lướt (skipChildren), không tạo object
+public record OphimItemProjection(String name, Set<String> fields) {
+    // Card trên homepage: mọi field MovieItemDTO / raw section trả ra (BeanUtils.copyProperties từ item)
+    // Field Ophim thêm mà DTO không có vẫn bị bỏ qua
+    public static final OphimItemProjection CARD = new OphimItemProjection("card", Set.of(
+            "_id", "name", "slug", "origin_name", "type", "status", "thumb_url", "poster_url", "is_copyright",
+            "trailer_url", "time", "episode_current", "episode_total", "quality", "lang", "year",
+            "actor", "director", "alternative_names",
+            "tmdb", "imdb", "modified", "category", "country"));
+
+    public boolean includes(String field) {
+        return fields.contains(field);
+    }
+}
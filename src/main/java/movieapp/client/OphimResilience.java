@@ -0,0 +1,155 @@
+package movieapp.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Lớp bảo vệ quanh Ophim (mỗi instance):
+// - circuit breaker: lỗi / chậm liên tục -> fail fast, không chờ timeout
+// - rate limit token bucket theo endpoint (home, list, detail): không dội tải lên Ophim
+// - bulkhead theo lane: request của user (vd: tạo favorite) không phải xếp hàng sau job refresh
+@Component
+@Slf4j
+public class OphimResilience {
+    public enum Lane {
+        USER, BACKGROUND
+    }
+
+    private static final List<String> ENDPOINTS = List.of("home", "list", "detail");
+
+    private final OphimCircuitBreaker circuitBreaker;
+    private final Map<String, TokenBucket> rateLimits = new LinkedHashMap<>();
+    private final Map<Lane, PermitQueue> bulkheads = new EnumMap<>(Lane.class);
+    private final Map<Lane, Long> maxWaitMillis = new EnumMap<>(Lane.class);
+    private final MeterRegistry meterRegistry;
+    private final Counter circuitRejected;
+
+    public OphimResilience(Environment environment, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = new OphimCircuitBreaker(
+                environment.getProperty("app.ophim.circuit.window-size", Integer.class, 20),
+                environment.getProperty("app.ophim.circuit.minimum-calls", Integer.class, 10),
+                environment.getProperty("app.ophim.circuit.failure-rate-percent", Double.class, 50.0),
+                environment.getProperty("app.ophim.circuit.slow-call-rate-percent", Double.class, 80.0),
+                environment.getProperty("app.ophim.circuit.slow-call-ms", Long.class, 3000L),
+                environment.getProperty("app.ophim.circuit.open-seconds", Long.class, 30L) * 1000,
+                environment.getProperty("app.ophim.circuit.half-open-calls", Integer.class, 3));
+
+        for (String endpoint : ENDPOINTS) {
+            double perSecond = environment.getProperty("app.ophim.rate-limit." + endpoint + ".per-second", Double.class, 10.0);
+            double burst = environment.getProperty("app.ophim.rate-limit." + endpoint + ".burst", Double.class, perSecond);
+            TokenBucket bucket = new TokenBucket(perSecond, burst);
+            rateLimits.put(endpoint, bucket);
+            Gauge.builder("ophim.ratelimit.available_tokens", bucket, TokenBucket::available)
+                    .description("Tokens left in the Ophim rate limit bucket")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        for (Lane lane : Lane.values()) {
+            String prefix = "app.ophim.bulkhead." + lane.name().toLowerCase() + ".";
+            int maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, lane == Lane.USER ? 4 : 12);
+            PermitQueue bulkhead = new PermitQueue(maxConcurrent);
+            bulkheads.put(lane, bulkhead);
+            maxWaitMillis.put(lane, environment.getProperty(prefix + "max-wait-ms", Long.class, lane == Lane.USER ? 300L : 10_000L));
+            Gauge.builder("ophim.bulkhead.active", bulkhead, permits -> permits.inUse(lane.name()))
+                    .description("Ophim calls in flight in this lane")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meterRegistry);
+            Gauge.builder("ophim.bulkhead.queued", bulkhead, permits -> permits.queued(lane.name()))
+                    .description("Ophim calls waiting for a slot in this lane")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+
+        this.circuitRejected = Counter.builder("ophim.circuit.rejected")
+                .description("Ophim calls refused because the circuit was open")
+                .register(meterRegistry);
+        Gauge.builder("ophim.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Ophim circuit state (0 = closed, 1 = open, 2 = half-open)")
+                .register(meterRegistry);
+        Gauge.builder("ophim.circuit.failure_rate", circuitBreaker, OphimCircuitBreaker::failureRate)
+                .description("Share of failed calls in the circuit window")
+                .register(meterRegistry);
+        Gauge.builder("ophim.circuit.slow_call_rate", circuitBreaker, OphimCircuitBreaker::slowCallRate)
+                .description("Share of slow calls in the circuit window")
+                .register(meterRegistry);
+    }
+
+    // ===================================
+    // ADMIT: circuit + rate limit, returns how long to wait before sending (ms)
+    // ===================================
+    public long admit(String endpoint, Lane lane, String target, long budgetMillis) {
+        if (!circuitBreaker.tryAcquire()) {
+            circuitRejected.increment();
+            throw new UpstreamUnavailableException(target, "circuit open");
+        }
+        long wait = rateLimits.get(endpoint).reserve(Math.min(maxWaitMillis.get(lane), budgetMillis));
+        if (wait < 0) {
+            circuitBreaker.releaseUnused();
+            rejected("ophim.ratelimit.rejected", "endpoint", endpoint);
+            throw new UpstreamUnavailableException(target, "rate limited");
+        }
+        return wait;
+    }
+
+    // ===================================
+    // BULKHEAD
+    // ===================================
+    //    BLOCKING: wait for the rate limit, then a lane slot
+    public void enter(String endpoint, Lane lane, String target, long budgetMillis) {
+        long wait = admit(endpoint, lane, target, budgetMillis);
+        try {
+            if (wait > 0) Thread.sleep(wait);
+            long slotWait = Math.min(maxWaitMillis.get(lane), Math.max(0, budgetMillis - wait));
+            if (!bulkheads.get(lane).tryAcquire(lane.name(), slotWait)) {
+                circuitBreaker.releaseUnused();
+                rejected("ophim.bulkhead.rejected", "lane", lane.name().toLowerCase());
+                throw new UpstreamUnavailableException(target, "bulkhead " + lane.name().toLowerCase() + " full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.releaseUnused();
+            throw new UpstreamUnavailableException(target, "interrupted");
+        }
+    }
+
+    //    NON-BLOCKING: completes when a lane slot is free (caller bounds the wait)
+    public CompletableFuture<Void> enterAsync(Lane lane) {
+        return bulkheads.get(lane).acquire(lane.name());
+    }
+
+    //    SLOT TAKEN, CALL NEVER SENT (timed out while queued)
+    public void abandon() {
+        circuitBreaker.releaseUnused();
+    }
+
+    public void exit(Lane lane) {
+        bulkheads.get(lane).release(lane.name());
+    }
+
+    // ===================================
+    // OUTCOME -> circuit breaker (4xx = Ophim answered, not a failure)
+    // ===================================
+    public void record(long elapsedMillis, Throwable error) {
+        circuitBreaker.record(elapsedMillis, error != null && !(error instanceof HttpClientErrorException));
+    }
+
+    private void rejected(String name, String tagKey, String tagValue) {
+        Counter.builder(name)
+                .description("Ophim calls refused by the client-side limits")
+                .tag(tagKey, tagValue)
+                .register(meterRegistry)
+                .increment();
+    }
+}
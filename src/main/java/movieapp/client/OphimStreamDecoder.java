@@ -0,0 +1,160 @@
+package movieapp.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import movieapp.dto.MetaAndHead.Params;
+import movieapp.dto.MetaAndHead.SeoOnPage;
+import movieapp.dto.OphimResponse.OphimHomepageResponse;
+import movieapp.dto.OphimResponse.OphimListResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Đọc response Ophim bằng JsonParser (streaming) thay vì bind cả payload:
+// - item chỉ materialize field trong projection, còn lại skipChildren
+// - list: dừng đọc ngay khi đủ maxItems (phần còn lại của body không được parse)
+@Component
+public class OphimStreamDecoder {
+    private final ObjectMapper objectMapper;
+    // JSON name -> setter + reader cho kiểu của field (theo annotation Jackson của OphimMovieItem)
+    private final Map<String, ItemField> itemFields = new HashMap<>();
+
+    private record ItemField(AnnotatedMember mutator, ObjectReader reader) {
+    }
+
+    public OphimStreamDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        BeanDescription description = objectMapper.getDeserializationConfig()
+                .introspect(objectMapper.constructType(OphimMovieItem.class));
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            AnnotatedMember mutator = property.getNonConstructorMutator();
+            if (mutator == null) continue;
+            mutator.fixAccess(true);
+            itemFields.put(property.getName(), new ItemField(mutator, objectMapper.readerFor(property.getPrimaryType())));
+        }
+    }
+
+    // ===================================
+    // /danh-sach/{slug}: status, message, data.items (tối đa maxItems)
+    // ===================================
+    public OphimListResponse decodeList(InputStream body, OphimItemProjection projection, int maxItems) throws IOException {
+        OphimListResponse response = new OphimListResponse();
+        OphimListResponse.ListData data = new OphimListResponse.ListData();
+        data.setItems(new ArrayList<>());
+        response.setData(data);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "status" -> response.setStatus(parser.getValueAsString());
+                    case "message" -> response.setMessage(parser.getValueAsString());
+                    case "data" -> {
+                        if (value != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String dataField = parser.currentName();
+                            parser.nextToken();
+                            if ("items".equals(dataField) && readItems(parser, projection, maxItems, data.getItems())) {
+                                return response;   // đủ item: bỏ phần còn lại (seoOnPage, params...)
+                            }
+                            if (!"items".equals(dataField)) parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return response;
+    }
+
+    // ===================================
+    // /home: cần cả seoOnPage + params (raw section), item theo projection
+    // ===================================
+    public OphimHomepageResponse decodeHomepage(InputStream body, OphimItemProjection projection) throws IOException {
+        OphimHomepageResponse response = new OphimHomepageResponse();
+        OphimHomepageResponse.HomepageData data = new OphimHomepageResponse.HomepageData();
+        data.setItems(new ArrayList<>());
+        response.setData(data);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "status" -> response.setStatus(parser.getValueAsString());
+                    case "message" -> response.setMessage(parser.getValueAsString());
+                    case "data" -> {
+                        if (value != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String dataField = parser.currentName();
+                            parser.nextToken();
+                            switch (dataField) {
+                                case "items" -> readItems(parser, projection, Integer.MAX_VALUE, data.getItems());
+                                case "seoOnPage" -> data.setSeoOnPage(objectMapper.readValue(parser, SeoOnPage.class));
+                                case "params" -> data.setParams(objectMapper.readValue(parser, Params.class));
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return response;
+    }
+
+    //    ITEMS ARRAY -> true if stopped at maxItems (rest of the array left unread)
+    private boolean readItems(JsonParser parser, OphimItemProjection projection, int maxItems, List<OphimMovieItem> items) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (items.size() >= maxItems) return true;
+            items.add(readItem(parser, projection));
+        }
+        return false;
+    }
+
+    private OphimMovieItem readItem(JsonParser parser, OphimItemProjection projection) throws IOException {
+        OphimMovieItem item = new OphimMovieItem();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            ItemField binding = projection.includes(field) ? itemFields.get(field) : null;
+            if (binding == null || parser.currentToken() == JsonToken.VALUE_NULL) {
+                parser.skipChildren();
+                continue;
+            }
+            binding.mutator().setValue(item, binding.reader().readValue(parser));
+        }
+        return item;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Unexpected Ophim response: expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package movieapp.client;
+
+import lombok.extern.slf4j.Slf4j;
+import movieapp.util.Deadline;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+// Phần transport mà JDK HttpClient không tự làm:
+// - gzip: xin Accept-Encoding và giải nén body
+// - tối đa N request đồng thời / host (HTTP/1.1: 1 connection / request đang chạy), giữ đến khi đọc xong body
+// - total timeout (connect + header + body), không vượt Deadline hiện tại của thread
+@Slf4j
+public class OphimTransportInterceptor implements ClientHttpRequestInterceptor {
+    private final PermitQueue hostPermits;
+    private final long acquireTimeoutMillis;
+    private final long totalTimeoutMillis;
+    private final ScheduledThreadPoolExecutor timer;
+
+    public OphimTransportInterceptor(PermitQueue hostPermits, long acquireTimeoutMillis, long totalTimeoutMillis) {
+        this.hostPermits = hostPermits;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.totalTimeoutMillis = totalTimeoutMillis;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ophim-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long budget = Deadline.current().map(deadline -> Math.min(deadline.remainingMillis(), totalTimeoutMillis)).orElse(totalTimeoutMillis);
+        long startNanos = System.nanoTime();
+        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        String host = request.getURI().getHost();
+        try {
+            if (!hostPermits.tryAcquire(host, Math.min(acquireTimeoutMillis, budget))) {
+                throw new SocketTimeoutException("No free connection to " + host + " (max " + hostPermits.getMaxPerKey() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection", e);
+        }
+
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            long remaining = budget - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            return new BoundedResponse(response, host, Math.max(1, remaining));
+        } catch (IOException | RuntimeException e) {
+            hostPermits.release(host);
+            throw e;
+        }
+    }
+
+    //    BODY: gunzip + hard stop at the total timeout; permit released on close
+    private final class BoundedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final String host;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final ScheduledFuture<?> timeout;
+        private final boolean gzip;
+        private HttpHeaders headers;
+        private InputStream body;
+
+        private BoundedResponse(ClientHttpResponse delegate, String host, long remainingMillis) {
+            this.delegate = delegate;
+            this.host = host;
+            this.gzip = "gzip".equalsIgnoreCase(delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+                    && delegate.getHeaders().getContentLength() != 0;
+            // Body treo (server gửi chậm) -> đóng stream, read() đang chờ nhận IOException
+            this.timeout = timer.schedule(() -> {
+                if (!closed.get()) {
+                    log.warn("⏱️ Ophim response still incomplete after {}ms, aborting", remainingMillis);
+                    close();
+                }
+            }, remainingMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                headers = new HttpHeaders();
+                headers.putAll(delegate.getHeaders());
+                if (gzip) {
+                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (closed.get()) throw new SocketTimeoutException("Ophim response exceeded total timeout");
+            if (body == null) {
+                InputStream raw = delegate.getBody();
+                body = gzip ? new GZIPInputStream(raw) : raw;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            timeout.cancel(false);
+            try {
+                delegate.close();
+            } finally {
+                hostPermits.release(host);
+            }
+        }
+    }
+}
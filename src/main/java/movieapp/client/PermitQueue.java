@@ -0,0 +1,103 @@
+package movieapp.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Tối đa N permit đang giữ / key (host, lane bulkhead...), chờ theo FIFO
+// Dùng chung cho RestTemplate (chờ có timeout) và client async (không chiếm thread khi chờ)
+public class PermitQueue {
+    private final int maxPerKey;
+    private final Map<String, Key> keys = new ConcurrentHashMap<>();
+
+    public PermitQueue(int maxPerKey) {
+        this.maxPerKey = maxPerKey;
+    }
+
+    public int getMaxPerKey() {
+        return maxPerKey;
+    }
+
+    public int inUse(String key) {
+        Key state = keys.get(key);
+        return state == null ? 0 : state.inUse();
+    }
+
+    public int queued(String key) {
+        Key state = keys.get(key);
+        return state == null ? 0 : state.queued();
+    }
+
+    //    NON-BLOCKING: completes when a permit is free (FIFO)
+    public CompletableFuture<Void> acquire(String key) {
+        return keys.computeIfAbsent(key, k -> new Key()).acquire();
+    }
+
+    //    BLOCKING: false if no permit within timeout
+    public boolean tryAcquire(String key, long timeoutMillis) throws InterruptedException {
+        CompletableFuture<Void> permit = acquire(key);
+        try {
+            permit.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Bị huỷ trước khi được cấp -> không giữ permit; cancel thất bại = vừa được cấp
+            return !permit.cancel(false);
+        } catch (InterruptedException e) {
+            if (!permit.cancel(false)) release(key);
+            throw e;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    public void release(String key) {
+        Key state = keys.get(key);
+        if (state != null) state.release();
+    }
+
+    private final class Key {
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int inUse;
+
+        private synchronized int inUse() {
+            return inUse;
+        }
+
+        private synchronized int queued() {
+            return (int) waiters.stream().filter(waiter -> !waiter.isDone()).count();
+        }
+
+        private CompletableFuture<Void> acquire() {
+            synchronized (this) {
+                if (inUse < maxPerKey) {
+                    inUse++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                return waiter;
+            }
+        }
+
+        private void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                // Bỏ qua waiter đã huỷ (hết thời gian chờ)
+                do {
+                    next = waiters.poll();
+                } while (next != null && next.isDone());
+                if (next == null) {
+                    inUse--;
+                    return;
+                }
+            }
+            // Chuyển thẳng permit cho waiter (inUse giữ nguyên); complete ngoài lock
+            if (!next.complete(null)) release();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package movieapp.client;
+
+// Token bucket: nạp ratePerSecond token/s, giữ tối đa burst token
+// reserve() lấy trước 1 token (số dư có thể âm) -> caller chỉ chờ đúng phần còn thiếu, thứ tự được giữ
+public class TokenBucket {
+    private final double ratePerMillis;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerMillis = ratePerSecond / 1000.0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.refilledAt = System.currentTimeMillis();
+    }
+
+    //    WAIT (ms) BEFORE THE CALL MAY START, -1 = would wait longer than maxWaitMillis (nothing taken)
+    public synchronized long reserve(long maxWaitMillis) {
+        refill();
+        double missing = 1 - tokens;
+        long wait = missing <= 0 ? 0 : (long) Math.ceil(missing / ratePerMillis);
+        if (wait > maxWaitMillis) return -1;
+        tokens -= 1;
+        return wait;
+    }
+
+    public synchronized double available() {
+        refill();
+        return Math.max(0, tokens);
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerMillis);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,228 @@
+package movieapp.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.RedisCircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Negative cache theo endpoint Ophim (tách khỏi cache "homepage") + cờ outage dùng chung mọi instance
+// ophim::negative (hash endpoint -> "{expiresAt}|{lỗi}", TTL ngắn), ophim::outage -> expiresAt
+// check() chỉ đọc local; bản Redis được sync nền tối đa 1 lần / giây (1 pipeline), không thêm round trip cho mỗi call
+@Component
+@Slf4j
+public class UpstreamFailureCache {
+    private static final String NEGATIVE_KEY = "ophim::negative";
+    private static final String OUTAGE_KEY = "ophim::outage";
+    private static final String FAILURES_KEY = "ophim::failures";
+    private static final long SYNC_INTERVAL_MS = 1000;
+
+    // KEYS[1]=failures | ARGV[1]=window ms: INCR + TTL trong 1 lệnh, key thiếu TTL cũng được gắn lại
+    private static final RedisScript<Long> COUNT_FAILURE = new DefaultRedisScript<>("""
+            local count = redis.call('INCR', KEYS[1])
+            if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end
+            return count
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final long negativeTtlMillis;
+    private final int outageThreshold;
+    private final long outageWindowMillis;
+    private final long outageTtlMillis;
+    // Bản local: không hỏi Redis lại cho endpoint vừa lỗi trên instance này
+    private final Cache<String, NegativeEntry> localNegative;
+    // Lỗi liên tiếp trên instance này (dùng khi Redis không đếm được)
+    private final AtomicInteger localFailures = new AtomicInteger();
+    private final Counter negativeHits;
+    private final Counter outageHits;
+    private volatile long outageUntil;
+    private volatile long syncedAt;
+
+    private record NegativeEntry(long expiresAt, String reason) {
+        String encode() {
+            return expiresAt + "|" + reason;
+        }
+
+        static NegativeEntry decode(String value) {
+            int separator = value.indexOf('|');
+            try {
+                return new NegativeEntry(Long.parseLong(value.substring(0, separator)), value.substring(separator + 1));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    public UpstreamFailureCache(StringRedisTemplate redisTemplate, RedisCircuitBreaker redisCircuitBreaker, MeterRegistry meterRegistry,
+                                @Value("${app.ophim.negative-ttl-seconds:15}") long negativeTtlSeconds,
+                                @Value("${app.ophim.outage.failure-threshold:5}") int outageThreshold,
+                                @Value("${app.ophim.outage.window-seconds:10}") long outageWindowSeconds,
+                                @Value("${app.ophim.outage.ttl-seconds:30}") long outageTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+        this.outageThreshold = outageThreshold;
+        this.outageWindowMillis = TimeUnit.SECONDS.toMillis(outageWindowSeconds);
+        this.outageTtlMillis = TimeUnit.SECONDS.toMillis(outageTtlSeconds);
+        this.localNegative = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMillis))
+                .build();
+        this.negativeHits = Counter.builder("ophim.upstream.short_circuited")
+                .description("Ophim calls skipped because the endpoint failed recently")
+                .tag("reason", "negative")
+                .register(meterRegistry);
+        this.outageHits = Counter.builder("ophim.upstream.short_circuited")
+                .description("Ophim calls skipped because the endpoint failed recently")
+                .tag("reason", "outage")
+                .register(meterRegistry);
+        Gauge.builder("ophim.upstream.outage", this, cache -> cache.outageUntil > System.currentTimeMillis() ? 1 : 0)
+                .description("1 while Ophim is flagged as down")
+                .register(meterRegistry);
+    }
+
+    // ===================================
+    // BEFORE A CALL: fail fast instead of waiting for a dead upstream
+    // ===================================
+    public void check(String endpoint) {
+        if (isOutage()) {
+            outageHits.increment();
+            throw new UpstreamUnavailableException(endpoint, "outage flagged");
+        }
+
+        NegativeEntry entry = localNegative.getIfPresent(endpoint);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            negativeHits.increment();
+            throw new UpstreamUnavailableException(endpoint, entry.reason());
+        }
+    }
+
+    //    SHARED FLAG, RE-READ FROM REDIS AT MOST ONCE PER SECOND
+    public boolean isOutage() {
+        long now = System.currentTimeMillis();
+        if (now - syncedAt >= SYNC_INTERVAL_MS) {
+            syncedAt = now;
+            syncShared(now);
+        }
+        return now < outageUntil;
+    }
+
+    //    ONE PIPELINE: outage flag + negative entries from other instances -> local
+    private void syncShared(long now) {
+        List<Object> shared;
+        try {
+            shared = redisCircuitBreaker.call(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection commands = (StringRedisConnection) connection;
+                commands.get(OUTAGE_KEY);
+                commands.hGetAll(NEGATIVE_KEY);
+                return null;
+            }));
+        } catch (DataAccessException e) {
+            return;   // Redis down -> chỉ dùng bản local
+        }
+        if (shared == null || shared.size() < 2) return;
+
+        try {
+            if (shared.get(0) instanceof String outage) outageUntil = Math.max(outageUntil, Long.parseLong(outage));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed Ophim outage flag: {}", shared.get(0));
+        }
+        if (shared.get(1) instanceof Map<?, ?> negatives) {
+            negatives.forEach((endpoint, value) -> {
+                NegativeEntry entry = NegativeEntry.decode(String.valueOf(value));
+                if (entry != null && entry.expiresAt() > now && localNegative.getIfPresent(String.valueOf(endpoint)) == null) {
+                    localNegative.put(String.valueOf(endpoint), entry);
+                }
+            });
+        }
+    }
+
+    // ===================================
+    // AFTER A CALL
+    // ===================================
+    public void recordSuccess() {
+        if (localFailures.getAndSet(0) == 0) return;
+        log.info("✅ Ophim answered again, resetting failure count");
+        try {
+            redisCircuitBreaker.run(() -> redisTemplate.delete(FAILURES_KEY));
+        } catch (DataAccessException e) {
+            log.debug("Could not reset Ophim failure count: {}", e.getMessage());
+        }
+    }
+
+    // Negative entry chỉ cho lỗi chắc chắn lặp lại (4xx, body không đọc được)
+    // 5xx / timeout thoáng qua: không chặn endpoint, retry của refresh vẫn gọi lại được; chỉ tính vào cờ outage
+    public void recordFailure(String endpoint, Exception error) {
+        long now = System.currentTimeMillis();
+        if (isDefinitive(error)) {
+            NegativeEntry entry = new NegativeEntry(now + negativeTtlMillis, error.getClass().getSimpleName() + ": " + error.getMessage());
+            localNegative.put(endpoint, entry);
+            try {
+                // Field hết hạn theo expiresAt; cả hash hết hạn sau lần ghi cuối
+                redisCircuitBreaker.run(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection commands = (StringRedisConnection) connection;
+                    commands.hSet(NEGATIVE_KEY, endpoint, entry.encode());
+                    commands.pExpire(NEGATIVE_KEY, negativeTtlMillis);
+                    return null;
+                }));
+            } catch (DataAccessException e) {
+                log.debug("Could not share negative entry for {}: {}", endpoint, e.getMessage());
+            }
+        }
+        // 4xx (vd: slug không tồn tại) chỉ nhớ cho endpoint đó, không tính là Ophim sập
+        if (error instanceof HttpClientErrorException) return;
+        int local = localFailures.incrementAndGet();
+
+        try {
+            Long failures = redisCircuitBreaker.call(() ->
+                    redisTemplate.execute(COUNT_FAILURE, List.of(FAILURES_KEY), String.valueOf(outageWindowMillis)));
+            if (failures != null && failures >= outageThreshold) flagOutage(now, failures);
+        } catch (DataAccessException e) {
+            log.debug("Could not share Ophim failure for {}: {}", endpoint, e.getMessage());
+            if (local >= outageThreshold) flagLocally(now, local);
+        }
+    }
+
+    //    4xx OR UNREADABLE BODY (decode error, possibly wrapped by RestTemplate)
+    static boolean isDefinitive(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException || cause instanceof JsonProcessingException) return true;
+        }
+        return false;
+    }
+
+    private void flagOutage(long now, long failures) {
+        long until = now + outageTtlMillis;
+        redisCircuitBreaker.run(() -> redisTemplate.opsForValue().set(OUTAGE_KEY, String.valueOf(until), Duration.ofMillis(outageTtlMillis)));
+        flagLocally(now, failures);
+    }
+
+    private void flagLocally(long now, long failures) {
+        long until = now + outageTtlMillis;
+        if (outageUntil < now) {
+            log.warn("🚫 Ophim flagged DOWN after {} failures in {}s, serving fallback data for {}s",
+                    failures, outageWindowMillis / 1000, outageTtlMillis / 1000);
+        }
+        outageUntil = until;
+    }
+
+}
@@ -0,0 +1,8 @@
+package movieapp.client;
+
+// Ophim vừa lỗi (negative cache / cờ outage) -> không gọi lại, caller dùng dữ liệu dự phòng
+public class UpstreamUnavailableException extends RuntimeException {
+    public UpstreamUnavailableException(String endpoint, String reason) {
+        super("Ophim " + endpoint + " unavailable (" + reason + ")");
+    }
+}
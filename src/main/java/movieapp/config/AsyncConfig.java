@@ -5,8 +5,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableAsync
@@ -15,8 +18,48 @@ public class AsyncConfig {
     @Value("${app.cache.detail-fetch-threads:10}")
     private int threadPoolSize;
 
+    @Value("${app.cache.refresh-threads:2}")
+    private int refreshPoolSize;
+
+    @Value("${app.cache.refresh-queue-size:20}")
+    private int refreshQueueSize;
+
+    @Value("${app.cache.refresh.build-threads:6}")
+    private int refreshBuildPoolSize;
+
+    @Value("${app.cache.refresh.build-queue-size:50}")
+    private int refreshBuildQueueSize;
+
+    @Value("${app.homepage.assembly-threads:12}")
+    private int assemblyPoolSize;
+
+    @Value("${app.homepage.assembly-queue-size:100}")
+    private int assemblyQueueSize;
+
     @Bean(name = "taskExecutor", destroyMethod = "shutdown")
     public ExecutorService taskExecutor() {
         return Executors.newFixedThreadPool(threadPoolSize);
     }
-}
\ No newline at end of file
+
+    // Background refresh (stale-while-revalidate), tách riêng để không tranh thread với fetch detail
+    // Queue đầy thì từ chối: nơi gọi bỏ qua lần refresh này (vẫn trả bản cũ), không dồn task vô hạn
+    @Bean(name = "cacheRefreshExecutor", destroyMethod = "shutdown")
+    public ExecutorService cacheRefreshExecutor() {
+        return new ThreadPoolExecutor(refreshPoolSize, refreshPoolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshQueueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Build section khi refresh (kể cả backoff retry), tách khỏi homepageExecutor để không chiếm thread của request
+    @Bean(name = "sectionRefreshExecutor", destroyMethod = "shutdown")
+    public ExecutorService sectionRefreshExecutor() {
+        return new ThreadPoolExecutor(refreshBuildPoolSize, refreshBuildPoolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshBuildQueueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Ghép section song song cho homepage; queue đầy thì thread gọi tự chạy
+    @Bean(name = "homepageExecutor", destroyMethod = "shutdown")
+    public ExecutorService homepageExecutor() {
+        return new ThreadPoolExecutor(assemblyPoolSize, assemblyPoolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(assemblyQueueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -1,46 +1,159 @@
 package movieapp.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import movieapp.cache.CacheFingerprints;
+import movieapp.cache.CacheTagIndex;
+import movieapp.cache.CacheValueCodec;
+import movieapp.cache.CacheValueNormalizer;
+import movieapp.cache.NearCacheInvalidator;
+import movieapp.cache.RedisCircuitBreaker;
+import movieapp.cache.TwoTierCacheManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
+    // Soft TTL: sau mốc này vẫn trả data cũ nhưng refresh nền
+    @Value("${app.cache.ttl-minutes:60}")
+    private long softTtlMinutes;
+
+    // Hard TTL: TTL thật của key trên Redis
+    @Value("${app.cache.hard-ttl-minutes:360}")
+    private long hardTtlMinutes;
+
+    @Value("${app.cache.near.cache-names:homepage}")
+    private Set<String> nearCacheNames;
+
+    @Value("${app.cache.near.max-size-mb:64}")
+    private long nearCacheMaxSizeMb;
+
+    @Value("${app.cache.near.ttl-minutes:60}")
+    private long nearCacheTtlMinutes;
+
+    // XFetch beta: > 1 refresh sớm hơn, 0 = tắt (chỉ refresh khi quá soft TTL)
+    @Value("${app.cache.xfetch.beta:1.0}")
+    private double xfetchBeta;
+
+    @Value("${app.cache.redis-breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${app.cache.redis-breaker.open-seconds:30}")
+    private long breakerOpenSeconds;
+
+    @Value("${app.cache.codec.format:smile}")
+    private String codecFormat;
+
+    @Value("${app.cache.codec.compress-threshold-bytes:1024}")
+    private int compressThresholdBytes;
+
+    // Value codec dùng chung cho cache manager + redisTemplate (đọc được cả entry JSON cũ)
+    @Bean
+    public CacheValueCodec cacheValueCodec() {
+        return new CacheValueCodec(CacheValueCodec.parseFormat(codecFormat), compressThresholdBytes);
+    }
+
+    // Bỏ qua Redis khi lỗi liên tiếp, đọc từ L1 / snapshot trên disk thay vì chờ timeout
+    @Bean
+    public RedisCircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry) {
+        return new RedisCircuitBreaker(breakerFailureThreshold, breakerOpenSeconds * 1000, meterRegistry);
+    }
+
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate stringRedisTemplate,
+                                     CacheValueCodec cacheValueCodec, NearCacheInvalidator nearCacheInvalidator,
+                                     @Qualifier("cacheRefreshExecutor") ExecutorService cacheRefreshExecutor,
+                                     MeterRegistry meterRegistry, CacheValueNormalizer cacheValueNormalizer,
+                                     RedisCircuitBreaker redisCircuitBreaker, CacheTagIndex cacheTagIndex,
+                                     CacheFingerprints cacheFingerprints) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
+                .entryTtl(Duration.ofMinutes(hardTtlMinutes))
+                // Lỗi Ophim không vào đây: negative cache riêng, TTL ngắn (UpstreamFailureCache)
                 .disableCachingNullValues()
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair
                                 .fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
-        return RedisCacheManager.builder(connectionFactory).cacheDefaults(config).build();
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueCodec));
+        // clear() dùng SCAN thay vì KEYS để không block Redis
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter).cacheDefaults(config).build();
+        redisCacheManager.afterPropertiesSet();
+
+        // L1 (Caffeine) nằm trước L2 (Redis) cho các cache trong app.cache.near.cache-names
+        return new TwoTierCacheManager(
+                redisCacheManager,
+                stringRedisTemplate,
+                nearCacheInvalidator,
+                cacheRefreshExecutor,
+                meterRegistry,
+                cacheValueNormalizer,
+                redisCircuitBreaker,
+                cacheTagIndex,
+                cacheFingerprints,
+                nearCacheNames,
+                nearCacheMaxSizeMb * 1024 * 1024,
+                Duration.ofMinutes(nearCacheTtlMinutes),
+                Duration.ofMinutes(softTtlMinutes),
+                Duration.ofMinutes(hardTtlMinutes),
+                xfetchBeta);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory, NearCacheInvalidator nearCacheInvalidator) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCacheInvalidator, new ChannelTopic(NearCacheInvalidator.CHANNEL));
+        return container;
     }
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, CacheValueCodec cacheValueCodec) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
         // Serializers
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
-        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
 
         template.setKeySerializer(stringSerializer);
-        template.setValueSerializer(jsonSerializer);
+        template.setValueSerializer(cacheValueCodec);
+        template.setHashKeySerializer(stringSerializer);
+        template.setHashValueSerializer(cacheValueCodec);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    // Raw bytes (pre-rendered HTTP bodies), không qua JSON serializer
+    @Bean
+    public RedisTemplate<String, byte[]> byteRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        StringRedisSerializer stringSerializer = new StringRedisSerializer();
+        template.setKeySerializer(stringSerializer);
+        template.setValueSerializer(RedisSerializer.byteArray());
         template.setHashKeySerializer(stringSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+        template.setHashValueSerializer(RedisSerializer.byteArray());
 
         template.afterPropertiesSet();
         return template;
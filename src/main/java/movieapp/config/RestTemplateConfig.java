@@ -1,13 +1,57 @@
 package movieapp.config;
 
+import movieapp.client.PermitQueue;
+import movieapp.client.OphimTransportInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
+    @Value("${app.ophim.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    // Tới khi nhận header response
+    @Value("${app.ophim.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    // Cả call (chờ connection + header + body)
+    @Value("${app.cache.api-timeout-seconds:10}")
+    private long totalTimeoutSeconds;
+
+    @Value("${app.ophim.max-connections-per-host:16}")
+    private int maxConnectionsPerHost;
+
+    // 1 client dùng chung: connection keep-alive được tái sử dụng, không bắt tay TCP+TLS lại cho mỗi call
+    // HTTP/2 qua ALPN (nhiều request trên 1 connection), server không hỗ trợ -> HTTP/1.1
+    @Bean
+    public HttpClient ophimHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    // Giới hạn / host dùng chung cho RestTemplate và OphimClient async
+    @Bean
+    public PermitQueue ophimHostPermits() {
+        return new PermitQueue(maxConnectionsPerHost);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClient ophimHttpClient, PermitQueue ophimHostPermits) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(ophimHttpClient);
+        requestFactory.setReadTimeout(readTimeoutMs);
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new OphimTransportInterceptor(
+                ophimHostPermits, connectTimeoutMs, Duration.ofSeconds(totalTimeoutSeconds).toMillis()));
+        return restTemplate;
     }
 }
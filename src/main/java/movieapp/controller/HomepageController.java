@@ -4,8 +4,12 @@ import lombok.extern.slf4j.Slf4j;
 import movieapp.dto.HomepageReponse.HomepageGroupResponse;
 import movieapp.dto.HomepageReponse.HomepageResponse;
 import movieapp.service.HomepageService;
+import movieapp.cache.CacheKeyInspector;
 import movieapp.service.CacheStrategy;
-import org.springframework.data.redis.core.RedisTemplate;
+import movieapp.service.HomepageRenderer.RenderedBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,36 +22,81 @@ import java.util.concurrent.TimeUnit;
 public class HomepageController {
     private final HomepageService homepageService;
     private final CacheStrategy cacheStrategy;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final CacheKeyInspector cacheKeyInspector;
 
-    public HomepageController(HomepageService homepageService, CacheStrategy cacheStrategy, RedisTemplate<String, Object> redisTemplate) {
+    public HomepageController(HomepageService homepageService, CacheStrategy cacheStrategy, CacheKeyInspector cacheKeyInspector) {
         this.homepageService = homepageService;
         this.cacheStrategy = cacheStrategy;
-        this.redisTemplate = redisTemplate;
+        this.cacheKeyInspector = cacheKeyInspector;
     }
 
     @GetMapping(value = {"/homepage", "/homepage/{group}"})
-    public ResponseEntity<HomepageGroupResponse> getHomepageGrouped(
-            @PathVariable(required = false) String group) {
+    public ResponseEntity<?> getHomepageGrouped(
+            @PathVariable(required = false) String group,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
         String resolvedGroup = (group == null || group.isBlank()) ? "initial" : group.toLowerCase();
 
-        if (!List.of("initial", "group1", "group2").contains(group.toLowerCase())) {
+        if (!List.of("initial", "group1", "group2").contains(resolvedGroup)) {
             log.error("❌ Invalid group requested: {}", group);
             throw new IllegalArgumentException("Invalid group. Must be: initial, group1, or group2");
         }
 
-        log.info("📥 Received request for homepage group: {}", group);
+        log.info("📥 Received request for homepage group: {}", resolvedGroup);
         long startTime = System.currentTimeMillis();
 
+        Optional<RenderedBody> rendered = homepageService.getRenderedGroup(resolvedGroup);
+        if (rendered.isPresent()) {
+            RenderedBody body = rendered.get();
+            if (etagMatches(ifNoneMatch, body.etag())) {
+                log.info("📤 Group {} not modified (304)", resolvedGroup);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(body.etag())
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(body.etag())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("📤 Returning pre-rendered group {} in {}ms", resolvedGroup, duration);
+            return builder.body(gzip ? body.gzip() : body.identity());
+        }
+
         HomepageGroupResponse response = homepageService.getHomepageByGroup(resolvedGroup);
 
         long duration = System.currentTimeMillis() - startTime;
-        log.info("📤 Returning group {} in {}ms", group, duration);
+        log.info("📤 Returning group {} in {}ms", resolvedGroup, duration);
+
+        // Partial (quá deadline): client poll lại sau 1s, không cache bản thiếu
+        if (response.getPendingSections() != null || response.getFailedSections() != null) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .body(response);
+        }
 
         return ResponseEntity.ok(response);
     }
 
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
     @GetMapping("/fullHomepage")
     public ResponseEntity<?> getHomepage() {
         log.info("📥 Received request for FULL homepage data");
@@ -143,6 +192,77 @@ public class HomepageController {
         }
     }
 
+    //   ROLLBACK GROUP SNAPSHOT TO PREVIOUS VERSION
+    @PostMapping("/admin/cache/rollback/{group}")
+    public ResponseEntity<Map<String, Object>> rollbackGroup(@PathVariable("group") String group) {
+        log.warn("🚨 Admin snapshot rollback requested for group: {}", group);
+
+        try {
+            long version = cacheStrategy.manualRollbackGroup(group);
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Group " + group + " rolled back successfully",
+                    "group", group,
+                    "version", version,
+                    "timestamp", new Date()
+            ));
+        } catch (Exception e) {
+            log.error("❌ Failed to rollback group {}: {}", group, e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage(),
+                    "timestamp", new Date()
+            ));
+        }
+    }
+
+    //   PER SECTION FRESHNESS (sections kept stale after failed refreshes have stale=true)
+    @GetMapping("/admin/cache/freshness")
+    public ResponseEntity<Map<String, Object>> getSectionFreshness() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "sections", cacheStrategy.sectionFreshness(),
+                    "timestamp", new Date()
+            ));
+        } catch (Exception e) {
+            log.warn("🚨 Error reading section freshness: {}", e.getMessage());
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            error.put("timestamp", new Date());
+
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    //   BENCHMARK REDIS VALUE CODECS ON REAL HOMEPAGE PAYLOADS
+    @GetMapping("/admin/cache/codec-benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkCodecs(@RequestParam(defaultValue = "200") int iterations) {
+        log.warn("🚨 Admin codec benchmark requested ({} iterations)", iterations);
+
+        try {
+            long startTime = System.currentTimeMillis();
+            List<Map<String, Object>> results = cacheStrategy.benchmarkCodecs(Math.min(Math.max(iterations, 1), 5000));
+            long duration = System.currentTimeMillis() - startTime;
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "results", results,
+                    "duration", duration + "ms",
+                    "timestamp", new Date()
+            ));
+        } catch (Exception e) {
+            log.error("❌ Codec benchmark failed: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage(),
+                    "timestamp", new Date()
+            ));
+        }
+    }
+
     //    ====== CLEAR CACHE ENDPOINTS ======
     //    MANUAL CLEAR CACHE BY SECTION KEY
     @DeleteMapping("/admin/cache/section/{section}")
@@ -150,13 +270,14 @@ public class HomepageController {
         log.warn("🚨 Admin manual clear cache by section: {}", section);
         try {
             long startTime = System.currentTimeMillis();
-            cacheStrategy.clearSectionCache(section);
-            long duration = System.currentTimeMillis();
+            Map<String, Set<String>> evicted = cacheStrategy.clearSectionCache(section);
+            long duration = System.currentTimeMillis() - startTime;
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Section " + section + " refreshed successfully",
                     "section", section,
+                    "evicted", evicted,
                     "duration_ms", duration,
                     "timestamp", new Date()
             ));
@@ -171,6 +292,34 @@ public class HomepageController {
         }
     }
 
+    //    MANUAL CLEAR EVERY ENTRY CARRYING A TAG (vd: ?tag=ophim:home)
+    @DeleteMapping("/admin/cache/tag")
+    public ResponseEntity<Map<String, Object>> clearCacheByTag(@RequestParam("tag") List<String> tags) {
+        log.warn("🚨 Admin manual clear cache by tags: {}", tags);
+        try {
+            long startTime = System.currentTimeMillis();
+            Map<String, Set<String>> evicted = cacheStrategy.clearByTags(tags);
+            long duration = System.currentTimeMillis() - startTime;
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Tags " + tags + " invalidated successfully",
+                    "tags", tags,
+                    "evicted", evicted,
+                    "duration_ms", duration,
+                    "timestamp", new Date()
+            ));
+        } catch (Exception e) {
+            log.warn("🚨 Error Admin manual clear cache requested for tags: {}", e.getMessage());
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            error.put("timestamp", new Date());
+
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
     @DeleteMapping("/admin/cache/group/{group}")
     public ResponseEntity<Map<String, Object>> clearCacheByGroup(@PathVariable("group") String group) {
         log.warn("🚨 Admin manual clear cache by group: {}", group);
@@ -219,29 +368,34 @@ public class HomepageController {
         log.info("📊 Cache status requested");
         Map<String, Object> status = new LinkedHashMap<>();
 
-        Set<String> keys = redisTemplate.keys("homepage::*");
+        List<CacheKeyInspector.KeyInfo> keys = cacheKeyInspector.inspect("homepage::*");
 
         status.put("timestamp", new Date());
-        status.put("total_Keys", keys != null ? keys.size() : 0);
+        status.put("total_Keys", keys.size());
 
         //        Detail key
-        if (keys != null && !keys.isEmpty()) {
+        if (!keys.isEmpty()) {
             Map<String, Object> keyDetails = new LinkedHashMap<>();
 
-            for (String key : keys) {
-                Long ttlSeconds = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+            for (CacheKeyInspector.KeyInfo key : keys) {
+                long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(key.ttlMillis());
 
                 Map<String, Object> detail = new LinkedHashMap<>();
-                if (ttlSeconds != null && ttlSeconds > 0) {
+                if (key.ttlMillis() > 0) {
                     detail.put("status", "CACHED");
                     detail.put("ttl_seconds", ttlSeconds);
                     detail.put("ttl_minutes", ttlSeconds / 60);
-                    detail.put("expires_at", new Date(System.currentTimeMillis() + (ttlSeconds * 1000)));
+                    detail.put("expires_at", new Date(System.currentTimeMillis() + key.ttlMillis()));
+                } else if (key.ttlMillis() == -1) {
+                    detail.put("status", "PERSISTENT");
                 } else {
                     detail.put("status", "EXPIRED");
                     detail.put("ttl_seconds", 0);
                 }
-                keyDetails.put(key, detail);
+                detail.put("type", key.type());
+                detail.put("size_bytes", key.sizeBytes());
+                detail.put("idle_seconds", key.idleSeconds());
+                keyDetails.put(key.key(), detail);
             }
             status.put("keys", keyDetails);
         } else {
@@ -18,6 +18,9 @@ public class HomepageGroupResponse {
     private String group;
     private boolean hasMore;
     private String nextGroup;
+    // Cold path quá deadline: section đang tính nền (client poll lại) / section lỗi (placeholder rỗng)
+    private List<String> pendingSections;
+    private List<String> failedSections;
 
 
     private List<MovieItemDTO> section1;
@@ -1,23 +1,56 @@
 package movieapp.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.ClusterLease;
+import movieapp.cache.CodecBenchmark;
+import movieapp.cache.TwoTierCache;
+import movieapp.client.UpstreamFailureCache;
+import movieapp.client.UpstreamUnavailableException;
+import movieapp.dto.HomepageReponse.HomepageResponse;
+import movieapp.dto.OphimResponse.OphimHomepageResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.retry.annotation.Recover;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class CacheStrategy {
+    private static final List<String> INITIAL_KEYS = List.of("raw", "section1", "section2", "section3", "section4");
+    private static final List<String> GROUP1_KEYS = List.of("section5", "section6", "section7", "section8");
+    private static final List<String> GROUP2_KEYS = List.of("section9", "section10", "section11", "section12");
+
     private final HomepageService homepageService;
     private final CachedSectionService cachedSectionService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final HomepageSnapshotStore snapshotStore;
+    private final HomepageDiskSnapshot diskSnapshot;
+    private final SectionGraph sectionGraph;
+    private final CacheTagInvalidator tagInvalidator;
+    private final SectionFreshnessTracker freshnessTracker;
+    private final ExecutorService sectionRefreshExecutor;
+    private final CacheManager cacheManager;
+    private final ClusterLease clusterLease;
+    private final UpstreamFailureCache upstreamFailureCache;
+    private final MeterRegistry meterRegistry;
 
     // ===================================
     // INJECT CONFIGURATION VALUES
@@ -25,17 +58,43 @@ public class CacheStrategy {
     @Value("${app.cache.warmup-delay-seconds:30}")
     private int warmupDelaySeconds;
 
-    @Value("${app.cache.ttl-minutes:60}")
-    private int cacheTtlMinutes;
-
     @Value("${app.cache.schedule.enabled:true}")
     private boolean scheduleEnabled;
 
+    @Value("${app.cache.codec.compress-threshold-bytes:1024}")
+    private int compressThresholdBytes;
+
+    @Value("${app.cache.refresh.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${app.cache.refresh.retry.initial-backoff-ms:500}")
+    private long retryInitialBackoffMs;
+
+    @Value("${app.cache.refresh.retry.max-backoff-ms:5000}")
+    private long retryMaxBackoffMs;
+
+    @Value("${app.cache.refresh.budget-seconds:120}")
+    private long refreshBudgetSeconds;
+
 
-    public CacheStrategy(HomepageService homepageService, CachedSectionService cachedSectionService, RedisTemplate<String, Object> redisTemplate) {
+    public CacheStrategy(HomepageService homepageService, CachedSectionService cachedSectionService, HomepageSnapshotStore snapshotStore,
+                         HomepageDiskSnapshot diskSnapshot, SectionGraph sectionGraph, CacheTagInvalidator tagInvalidator,
+                         SectionFreshnessTracker freshnessTracker,
+                         @Qualifier("sectionRefreshExecutor") ExecutorService sectionRefreshExecutor,
+                         CacheManager cacheManager, ClusterLease clusterLease, UpstreamFailureCache upstreamFailureCache,
+                         MeterRegistry meterRegistry) {
         this.homepageService = homepageService;
         this.cachedSectionService = cachedSectionService;
-        this.redisTemplate = redisTemplate;
+        this.snapshotStore = snapshotStore;
+        this.diskSnapshot = diskSnapshot;
+        this.sectionGraph = sectionGraph;
+        this.tagInvalidator = tagInvalidator;
+        this.freshnessTracker = freshnessTracker;
+        this.sectionRefreshExecutor = sectionRefreshExecutor;
+        this.cacheManager = cacheManager;
+        this.clusterLease = clusterLease;
+        this.upstreamFailureCache = upstreamFailureCache;
+        this.meterRegistry = meterRegistry;
     }
 
     // ===================================
@@ -50,7 +109,9 @@ public class CacheStrategy {
         long startTime = System.currentTimeMillis();
 
         try {
-            homepageService.getHomepageData();
+            if (!clusterLease.runExclusively("cache:warmup", lease -> homepageService.getHomepageData())) {
+                return;
+            }
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ [STARTUP] Cache warmed up successfully!");
             log.info("✅ [STARTUP] Duration: {}ms ({}s)", duration, duration / 1000);
@@ -81,13 +142,10 @@ public class CacheStrategy {
         long startTime = System.currentTimeMillis();
 
         try {
-            refreshGroupSafely("initial", List.of("raw", "section1", "section2", "section3", "section4"), () -> {
-                cachedSectionService.fetchHomepageRaw();
-                cachedSectionService.fetchSection1();
-                cachedSectionService.fetchSection2();
-                cachedSectionService.fetchSection3();
-                cachedSectionService.fetchSection4();
-            });
+            if (!clusterLease.runExclusively("refresh:initial", lease -> refreshGroupSafely("initial", INITIAL_KEYS, lease))) {
+                log.info("⏭️ [MINUTE 54] initial refresh handled by another instance");
+                return;
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ [MINUTE 54] Initial group refreshed in {}ms ({}s)", duration, duration / 1000);
@@ -114,13 +172,10 @@ public class CacheStrategy {
         long startTime = System.currentTimeMillis();
 
         try {
-            refreshGroupSafely("group1", List.of("section5", "section6", "section7", "section8"), () -> {
-                cachedSectionService.fetchHomepageRaw();
-                cachedSectionService.fetchSection5();
-                cachedSectionService.fetchSection6();
-                cachedSectionService.fetchSection7();
-                cachedSectionService.fetchSection8();
-            });
+            if (!clusterLease.runExclusively("refresh:group1", lease -> refreshGroupSafely("group1", GROUP1_KEYS, lease))) {
+                log.info("⏭️ [MINUTE 55] group1 refresh handled by another instance");
+                return;
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ [MINUTE 55] Group 1 refreshed in {}ms ({}s)", duration, duration / 1000);
@@ -147,12 +202,10 @@ public class CacheStrategy {
         long startTime = System.currentTimeMillis();
 
         try {
-            refreshGroupSafely("group2", List.of("section9", "section10", "section11", "section12"), () -> {
-                cachedSectionService.fetchSection9();
-                cachedSectionService.fetchSection10();
-                cachedSectionService.fetchSection11();
-                cachedSectionService.fetchSection12();
-            });
+            if (!clusterLease.runExclusively("refresh:group2", lease -> refreshGroupSafely("group2", GROUP2_KEYS, lease))) {
+                log.info("⏭️ [MINUTE 56] group2 refresh handled by another instance");
+                return;
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ [MINUTE 56] Group 2 refreshed in {}ms ({}s)", duration, duration / 1000);
@@ -163,106 +216,248 @@ public class CacheStrategy {
     }
 
     // ===================================
-    // ✅ CORE LOGIC: Fetch-Verify-Swap Pattern
+    // EARLY REFRESH (XFetch từ reader, thay cho cron khi schedule tắt)
+    // ===================================
+    @Async("cacheRefreshExecutor")
+    @EventListener
+    public void onGroupRefreshRequested(GroupRefreshRequestedEvent event) {
+        String group = event.group();
+        try {
+            List<String> keys = groupKeys(group);
+            if (clusterLease.runIfFree("refresh:" + group, lease -> refreshGroupSafely(group, keys, lease))) {
+                log.info("✅ [XFETCH] {} refreshed ahead of expiry", group);
+            }
+        } catch (Exception e) {
+            log.error("❌ [XFETCH] Early refresh of {} failed: {}", group, e.getMessage());
+        }
+    }
+
+    // ===================================
+    // ✅ CORE LOGIC: Build-Validate-Swap (stale-while-revalidate)
     // ===================================
-    public void refreshGroupSafely(String groupName, List<String> cacheKeys, Runnable fetchAction) {
+    // Old values stay readable during the whole rebuild; they are only
+    // replaced once every section of the group was built and validated.
+    // Manual: always rebuild, even if Ophim returned the same items
+    public void refreshGroupSafely(String groupName, List<String> cacheKeys) {
+        refreshGroupSafely(groupName, cacheKeys, null, true);
+    }
+
+    // Scheduled: writes are fenced by the lease token, unchanged sections are skipped
+    public void refreshGroupSafely(String groupName, List<String> cacheKeys, ClusterLease.Lease lease) {
+        refreshGroupSafely(groupName, cacheKeys, lease, false);
+    }
+
+    private void refreshGroupSafely(String groupName, List<String> cacheKeys, ClusterLease.Lease lease, boolean force) {
+        if (!force && upstreamFailureCache.isOutage()) {
+            // Ophim đang bị đánh dấu sập: giữ nguyên data hiện tại, không xếp hàng retry vào upstream chết
+            throw new UpstreamUnavailableException("refresh " + groupName, "outage flagged");
+        }
         log.info("🔄 [{}] Starting safe refresh...", groupName);
 
-        List<String> tempKeys = backupCacheToTemp(cacheKeys);
-        try {
-            clearSectionsCache(cacheKeys);
-            log.info("🗑️ [{}] Cleared old cache", groupName);
+        Cache cache = homepageCache();
+        Map<String, Object> freshValues = new LinkedHashMap<>();
+        Map<String, Long> computeMillis = new LinkedHashMap<>();
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+        List<String> unchanged = new ArrayList<>();
+        if (force) {
+            // Manual: không dùng lại response Ophim vừa memo (vd: raw cũ cho section1)
+            Set<String> tags = new LinkedHashSet<>();
+            cacheKeys.forEach(key -> tags.addAll(cachedSectionService.tagsOf(key)));
+            cachedSectionService.forgetUpstream(tags);
+        }
+        Map<String, String> failed = new LinkedHashMap<>();
+        long stepStart = System.nanoTime();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(refreshBudgetSeconds);
+        RetryTemplate retry = sectionRetry(deadline);
+        SectionGraph.Result<BuiltSection> built = sectionGraph.run(cacheKeys,
+                key -> buildSectionWithRetry(retry, cache, key, force, deadline), sectionRefreshExecutor);
+        built.failures().forEach((key, error) -> {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            failed.put(key, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        });
+        built.values().forEach((key, section) -> {
+            if (section.value() == null) {
+                unchanged.add(key);
+            } else {
+                freshValues.put(key, section.value());
+                fingerprints.put(key, section.fingerprint());
+                computeMillis.put(key, section.computeMillis());
+            }
+        });
+        recordStep(groupName, "build", stepStart);
+        log.info("✅ [{}] Built and validated {} sections ({} unchanged upstream: {})",
+                groupName, freshValues.size(), unchanged.size(), unchanged);
+        if (!failed.isEmpty()) {
+            log.warn("⚠️ [{}] Keeping last good value for {} failed sections: {}", groupName, failed.size(), failed);
+        }
+        freshnessTracker.record(Stream.concat(freshValues.keySet().stream(), unchanged.stream()).toList(), failed);
+        if (failed.size() == cacheKeys.size()) {
+            throw new IllegalStateException("All sections of " + groupName + " failed: " + failed);
+        }
 
-            fetchAction.run();
-            log.info("✅ [{}] Fetched new data successfully", groupName);
+        if (lease != null && !lease.isHeld()) {
+            throw new IllegalStateException("Lease lost while refreshing " + groupName + ", discarding results");
+        }
+        stepStart = System.nanoTime();
+        swapSections(freshValues, computeMillis, fingerprints);
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.touchAll(unchanged);
+        }
+        recordStep(groupName, "swap", stepStart);
+        log.info("✅ [{}] Swapped new data into cache", groupName);
 
-            verifyCacheExist(cacheKeys);
-            log.info("✅ [{}] Verified new cache exists", groupName);
+        stepStart = System.nanoTime();
+        publishSnapshots(freshValues, computeMillis, failed.keySet(), lease);
+        touchUnchangedSnapshots(freshValues, unchanged);
+        recordStep(groupName, "publish", stepStart);
+    }
 
-        } catch (Exception e) {
-            log.error("❌ [{}] Fetch failed: {}", groupName, e.getMessage());
+    // value = null: upstream unchanged, nothing rebuilt
+    private record BuiltSection(Object value, String fingerprint, long computeMillis) {
+    }
 
-            // Step 6: Rollback - Restore old cache from temp
-            restoreCacheFromTemp(cacheKeys, tempKeys);
+    //    EXPONENTIAL BACKOFF + JITTER, SHARED TIME BUDGET FOR THE WHOLE REFRESH
+    private RetryTemplate sectionRetry(long deadline) {
+        ExponentialRandomBackOffPolicy backOff = new ExponentialRandomBackOffPolicy();
+        backOff.setInitialInterval(retryInitialBackoffMs);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(retryMaxBackoffMs);
+        // Không ngủ quá budget còn lại; lần thử kế tiếp sẽ dừng với RefreshBudgetExceededException
+        backOff.setSleeper(backOffMillis -> {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining > 0) Thread.sleep(Math.min(backOffMillis, remaining));
+        });
+        return RetryTemplate.builder()
+                .maxAttempts(retryMaxAttempts)
+                .customBackoff(backOff)
+                .notRetryOn(List.of(RefreshBudgetExceededException.class, UpstreamUnavailableException.class))
+                .traversingCauses()
+                .build();
+    }
 
+    private BuiltSection buildSectionWithRetry(RetryTemplate retry, Cache cache, String key, boolean force, long deadline) {
+        try {
+            return retry.execute(context -> {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new RefreshBudgetExceededException(key, context.getRetryCount());
+                }
+                if (context.getRetryCount() > 0) {
+                    log.info("🔁 Retrying {} (attempt {})", key, context.getRetryCount() + 1);
+                }
+                return buildSection(cache, key, force);
+            });
+        } catch (RuntimeException e) {
+            // Ném ra cho SectionGraph: ghi lỗi theo node + bỏ các section build từ nó (raw -> section1, section6)
+            log.warn("⚠️ Section {} failed after retries: {}", key, e.getMessage());
             throw e;
-        } finally {
-            deleteTempBackup(tempKeys);
         }
     }
 
-    // ===================================
-    // BACKUP CACHE TO TEMP KEYS
-    // ===================================
-    private List<String> backupCacheToTemp(List<String> cacheKeys) {
-        List<String> tempKeys = new ArrayList<>();
-
-        for (String key : cacheKeys) {
-            String redisKey = "homepage::" + key;
-            String tempKey = "homepage::temp::" + key;
-
-            Object oldValue = redisTemplate.opsForValue().get(redisKey);
-            if (oldValue != null) {
-                redisTemplate.opsForValue().set(tempKey, oldValue, 10, TimeUnit.MINUTES);
-                tempKeys.add(tempKey);
-                log.debug("📦 Backed up {} → {}", redisKey, tempKey);
-            }
+    private static class RefreshBudgetExceededException extends RuntimeException {
+        RefreshBudgetExceededException(String key, int attempts) {
+            super("Refresh time budget exceeded before " + key + " (after " + attempts + " attempts)");
         }
-        return tempKeys;
     }
 
-    // ===================================
-    // RESTORE CACHE FROM TEMP (ROLLBACK)
-    // ===================================
-    private void restoreCacheFromTemp(List<String> cacheKeys, List<String> tempKeys) {
-        log.warn("🔄 Rolling back to old cache...");
+    private BuiltSection buildSection(Cache cache, String key, boolean force) {
+        long startTime = System.currentTimeMillis();
+        String fingerprint = cachedSectionService.fingerprintSection(key);
+        if (!force && cache instanceof TwoTierCache twoTierCache && fingerprint.equals(twoTierCache.fingerprintOf(key))) {
+            return new BuiltSection(null, fingerprint, 0L);
+        }
 
-        for (String key : cacheKeys) {
-            String redisKey = "homepage::" + key;
-            String tempKey = "homepage::temp::" + key;
+        Object value = cachedSectionService.buildSection(key);
+        validateSection(key, value);
+        return new BuiltSection(value, fingerprint, System.currentTimeMillis() - startTime);
+    }
 
-            Object tempValue = redisTemplate.opsForValue().get(tempKey);
-            if (tempValue != null) {
-                redisTemplate.opsForValue().set(redisKey, tempValue, cacheTtlMinutes, TimeUnit.MINUTES);
-                log.info("↩️ Restored {} from backup", redisKey);
-            }
-        }
+    private void recordStep(String groupName, String step, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("cache.refresh.step")
+                .tag("group", groupName)
+                .tag("step", step)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("⏱️ [{}] {} took {}ms", groupName, step, TimeUnit.NANOSECONDS.toMillis(elapsed));
     }
 
     // ===================================
-    // DELETE TEMP BACKUP
+    // SWAP NEW VALUES INTO CACHE
     // ===================================
-    private void deleteTempBackup(List<String> tempKeys) {
-        for (String tempKey : tempKeys) {
-            redisTemplate.delete(tempKey);
+    private void swapSections(Map<String, Object> freshValues, Map<String, Long> computeMillis, Map<String, String> fingerprints) {
+        Cache cache = homepageCache();
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.putAll(freshValues, computeMillis, fingerprints);
+        } else {
+            freshValues.forEach(cache::put);
         }
-        log.debug("🗑️ Deleted temp backup keys");
     }
 
     // ===================================
-    // VERIFY CACHE EXISTS
+    // PUBLISH GROUP SNAPSHOTS (versioned, one pointer flip per group)
     // ===================================
-    private void verifyCacheExist(List<String> cacheKeys) {
-        for (String key : cacheKeys) {
-            String redisKeys = "homepage::" + key;
-            Boolean exist = redisTemplate.hasKey(redisKeys);
-
-            if (exist == null || !exist) {
-                throw new IllegalStateException("Cache verification failed: " + redisKeys + " does not exist");
+    private void publishSnapshots(Map<String, Object> freshValues, Map<String, Long> computeMillis,
+                                  Set<String> failed, ClusterLease.Lease lease) {
+        Cache cache = homepageCache();
+        HomepageSnapshotStore.GROUP_SECTIONS.forEach((group, sections) -> {
+            if (sections.stream().noneMatch(freshValues::containsKey)) return;
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            for (String section : sections) {
+                Object value;
+                if (freshValues.containsKey(section)) {
+                    value = freshValues.get(section);
+                } else if (failed.contains(section)) {
+                    // Section lỗi: giữ bản tốt gần nhất, không build lại lần nữa
+                    Cache.ValueWrapper lastGood = cache.get(section);
+                    if (lastGood == null) {
+                        log.warn("⚠️ [{}] No last good value for failed {}, keeping current snapshot", group, section);
+                        return;
+                    }
+                    value = lastGood.get();
+                } else {
+                    value = cache.get(section, () -> cachedSectionService.buildSection(section));
+                }
+                snapshot.put(section, value);
             }
-        }
+            diskSnapshot.save(snapshot);
+            HomepageRenderer.RenderedBody body = homepageService.renderGroup(group, snapshot);
+            long buildMillis = sections.stream().mapToLong(section -> computeMillis.getOrDefault(section, 0L)).sum();
+            if (lease != null) {
+                snapshotStore.publish(group, snapshot, body, buildMillis, lease.getFencingToken());
+            } else {
+                snapshotStore.publish(group, snapshot, body, buildMillis);
+            }
+        });
+    }
+
+    //    GROUPS WHERE NOTHING WAS REBUILT: only extend the current snapshot
+    private void touchUnchangedSnapshots(Map<String, Object> freshValues, List<String> unchanged) {
+        HomepageSnapshotStore.GROUP_SECTIONS.forEach((group, sections) -> {
+            if (sections.stream().anyMatch(freshValues::containsKey)) return;
+            if (sections.stream().noneMatch(unchanged::contains)) return;
+            snapshotStore.touch(group);
+        });
     }
 
     // ===================================
-    // RECOVER METHOD (after 3 retries failed)
+    // VALIDATE NEW SECTION DATA
     // ===================================
-    @Recover
-    private void recoverFromRefreshFailure(Exception e, String groupName, List<String> cacheKeys, Runnable fetchAction) {
-        log.error("❌ ========================================");
-        log.error("❌ [{}] Refresh FAILED after 3 retries!", groupName);
-        log.error("❌ Error: {}", e.getMessage());
-        log.error("❌ Keeping OLD cache until next scheduled refresh");
-        log.error("❌ ========================================");
+    private void validateSection(String key, Object value) {
+        boolean valid;
+        if (value instanceof OphimHomepageResponse raw) {
+            valid = raw.getData() != null && raw.getData().getItems() != null && !raw.getData().getItems().isEmpty();
+        } else if (value instanceof HomepageResponse.Section2Data section2) {
+            valid = section2.getListKorea() != null && section2.getListChina() != null && section2.getListUSAndUK() != null;
+        } else if (value instanceof Collection<?> items) {
+            valid = !items.isEmpty();
+        } else {
+            valid = value != null;
+        }
+
+        if (!valid) {
+            throw new IllegalStateException("Section validation failed: " + key + " is empty");
+        }
     }
 
     public void manualRefreshAll() {
@@ -273,10 +468,8 @@ public class CacheStrategy {
         long startTime = System.currentTimeMillis();
 
         try {
-            // Clear & refresh
-            clearAllCache();
-            log.info("🗑️ [MANUAL] Cache cleared");
-            homepageService.getHomepageData();
+            // Build everything first, old cache keeps serving until the swap
+            refreshGroupSafely("all", SectionGraph.allSections());
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ [MANUAL] Cache force refreshed successfully!");
@@ -295,130 +488,96 @@ public class CacheStrategy {
     public void manualRefreshSection(String sectionKey) {
         log.warn("🚨 [MANUAL] Refreshing section: {}", sectionKey);
 
-        switch (sectionKey.toLowerCase().trim()) {
-            case "raw" -> {
-                clearSectionCache("raw");
-                cachedSectionService.fetchHomepageRaw();
-            }
-            case "section1" -> {
-                clearSectionsCache(List.of("raw", "section1"));
-                cachedSectionService.fetchSection1();
-            }
-
-            case "section2" -> {
-                clearSectionCache("section2");
-                cachedSectionService.fetchSection2();
-            }
-            case "section3" -> {
-                clearSectionCache("section3");
-                cachedSectionService.fetchSection3();
-            }
-            case "section4" -> {
-                clearSectionCache("section4");
-                cachedSectionService.fetchSection4();
-            }
-            case "section5" -> {
-                clearSectionCache("section5");
-                cachedSectionService.fetchSection5();
-            }
-            case "section6" -> {
-                clearSectionsCache(List.of("raw", "section6"));
-                cachedSectionService.fetchSection6();
-            }
-            case "section7" -> {
-                clearSectionCache("section7");
-                cachedSectionService.fetchSection7();
-            }
-            case "section8" -> {
-                clearSectionCache("section8");
-                cachedSectionService.fetchSection8();
-            }
-            case "section9" -> {
-                clearSectionCache("section9");
-                cachedSectionService.fetchSection9();
-            }
-            case "section10" -> {
-                clearSectionCache("section10");
-                cachedSectionService.fetchSection10();
-            }
-            case "section11" -> {
-                clearSectionCache("section11");
-                cachedSectionService.fetchSection11();
-            }
-            case "section12" -> {
-                clearSectionCache("section12");
-                cachedSectionService.fetchSection12();
-            }
-            default -> throw new IllegalArgumentException("Unknown section: " + sectionKey);
-        }
-
+        String key = sectionKey.toLowerCase().trim();
+        refreshGroupSafely(key, sectionGraph.withDependencies(key));
     }
 
     public void manualRefreshGroup(String group) {
         log.warn("🚨 [MANUAL] Refreshing group: {}", group);
+        refreshGroupSafely(group, groupKeys(group));
+    }
 
-        switch (group.toLowerCase().trim()) {
-            case "initial" -> {
-                clearSectionsCache(List.of("raw", "section1", "section2", "section3", "section4"));
-                cachedSectionService.fetchSection1();
-                cachedSectionService.fetchSection2();
-                cachedSectionService.fetchSection3();
-                cachedSectionService.fetchSection4();
-            }
-            case "group1" -> {
-                clearSectionsCache(List.of("section5", "section6", "section7", "section8"));
-                cachedSectionService.fetchSection5();
-                cachedSectionService.fetchSection6();
-                cachedSectionService.fetchSection7();
-                cachedSectionService.fetchSection8();
-            }
-            case "group2" -> {
-                clearSectionsCache(List.of("section9", "section10", "section11", "section12"));
-                cachedSectionService.fetchSection9();
-                cachedSectionService.fetchSection10();
-                cachedSectionService.fetchSection11();
-                cachedSectionService.fetchSection12();
-            }
-            default -> throw new IllegalArgumentException("Invalid group: " + group);
-        }
+    public long manualRollbackGroup(String group) {
+        log.warn("🚨 [MANUAL] Rolling back snapshot of group: {}", group);
+        return snapshotStore.rollback(group.toLowerCase().trim());
     }
 
     public void manualClearCacheByGroup(String group) {
         log.warn("🚨 [MANUAL] Clear cache group: {}", group);
-        switch (group.toLowerCase()) {
-            case "initial" -> clearSectionsCache(List.of("raw", "section1", "section2", "section3", "section4"));
-
-            case "group1" -> clearSectionsCache(List.of("section5", "section6", "section7", "section8"));
-
-            case "group2" -> clearSectionsCache(List.of("section9", "section10", "section11", "section12"));
-        }
+        clearSectionsCache(groupKeys(group));
     }
 
     //    HELPER: CLEAR CACHE
 //    @CacheEvict(value = "homepage", allEntries = true)
     public void clearAllCache() {
-        log.info("🗑️ Clearing cache via @CacheEvict + Redis direct delete");
-        Set<String> keys = redisTemplate.keys("homepage::*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-        }
+        log.info("🗑️ Clearing cache via Redis + near cache on every node");
+        homepageCache().clear();
+        // Snapshot nằm ngoài namespace homepage::, xoá qua store (giữ fence + version seq)
+        snapshotStore.clearAll();
     }
 
-    //    CLEAR CACHE ONE SECTION
+    //    CLEAR CACHE ONE SECTION (+ sections sharing its upstream tags)
 //    @CacheEvict(value = "homepage", key = "#sectionKey")
-    public void clearSectionCache(String sectionKey) {
-        if (sectionKey == null && sectionKey.isEmpty()) return;
-        String redisKey = "homepage::" + sectionKey;
-        redisTemplate.delete(redisKey);
-        log.info("🗑️ Cleared section '{}' → deleted: {}", sectionKey);
+    public Map<String, Set<String>> clearSectionCache(String sectionKey) {
+        if (sectionKey == null || sectionKey.isEmpty()) return Map.of();
+        return clearSectionsCache(List.of(sectionKey.toLowerCase().trim()));
+    }
+
+    //    CLEAR MANY SECTION (one tag batch)
+    public Map<String, Set<String>> clearSectionsCache(List<String> sectionKeys) {
+        if (sectionKeys == null || sectionKeys.isEmpty()) return Map.of();
+
+        // Entry ghi trước khi có tag index: vẫn xoá đúng key được yêu cầu
+        if (homepageCache() instanceof TwoTierCache twoTierCache) {
+            twoTierCache.evictAll(sectionKeys);
+        } else {
+            sectionKeys.forEach(homepageCache()::evict);
+        }
+        sectionKeys.forEach(snapshotStore::evictGroupOfSection);
+
+        Map<String, Set<String>> evicted = tagInvalidator.invalidateSections(sectionKeys);
+        log.info("🗑️ Cleared {} sections: {} (cascade: {})", sectionKeys.size(), sectionKeys, evicted);
+        return evicted;
+    }
+
+    //    CLEAR EVERY ENTRY CARRYING ONE OF THE TAGS
+    public Map<String, Set<String>> clearByTags(List<String> tags) {
+        log.warn("🚨 [MANUAL] Invalidating tags: {}", tags);
+        return tagInvalidator.invalidate(tags);
+    }
+
+    //    PER SECTION FRESHNESS (age of last successful refresh, failure streak)
+    public Map<String, Map<String, Object>> sectionFreshness() {
+        return freshnessTracker.snapshot();
+    }
+
+    //    CODEC BENCHMARK ON CURRENTLY CACHED SECTIONS
+    public List<Map<String, Object>> benchmarkCodecs(int iterations) {
+        Cache cache = homepageCache();
+        Map<String, Object> payloads = new LinkedHashMap<>();
+        Stream.of(INITIAL_KEYS, GROUP1_KEYS, GROUP2_KEYS).flatMap(List::stream).forEach(key -> {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null && wrapper.get() != null) payloads.put(key, wrapper.get());
+        });
+        if (payloads.isEmpty()) {
+            throw new IllegalStateException("No cached sections to benchmark, warm up the cache first");
+        }
+        log.info("📊 Benchmarking cache codecs on {} sections ({} iterations)", payloads.size(), iterations);
+        return CodecBenchmark.run(payloads, iterations, compressThresholdBytes);
     }
 
-    //    CLEAR MANY SECTION
-    public void clearSectionsCache(List<String> sectionKeys) {
-        if (sectionKeys == null || sectionKeys.isEmpty()) return;
-        List<String> redisKeys = sectionKeys.stream().map(key -> key).toList();
+    //    HELPER: HOMEPAGE CACHE (L1 + L2)
+    private Cache homepageCache() {
+        return cacheManager.getCache("homepage");
+    }
 
-        redisKeys.forEach(this::clearSectionCache);
-        log.info("🗑️ Cleared {} sections: {} (deleted: {})", redisKeys.size(), redisKeys);
+    //    HELPER: CACHE KEYS OF A GROUP
+    private List<String> groupKeys(String group) {
+        return switch (group.toLowerCase().trim()) {
+            case "initial" -> INITIAL_KEYS;
+            case "group1" -> GROUP1_KEYS;
+            case "group2" -> GROUP2_KEYS;
+            default -> throw new IllegalArgumentException("Invalid group: " + group);
+        };
     }
 }
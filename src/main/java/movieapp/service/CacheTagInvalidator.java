@@ -0,0 +1,60 @@
+package movieapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheTagIndex;
+import movieapp.cache.TwoTierCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Xoá mọi entry mang 1 trong các tag (1 SUNION + 1 DEL / cache), kèm snapshot group + memo Ophim liên quan
+@Service
+@Slf4j
+public class CacheTagInvalidator {
+    private final CacheTagIndex tagIndex;
+    private final CacheManager cacheManager;
+    private final HomepageSnapshotStore snapshotStore;
+    private final CachedSectionService cachedSectionService;
+
+    public CacheTagInvalidator(CacheTagIndex tagIndex, CacheManager cacheManager, HomepageSnapshotStore snapshotStore,
+                               CachedSectionService cachedSectionService) {
+        this.tagIndex = tagIndex;
+        this.cacheManager = cacheManager;
+        this.snapshotStore = snapshotStore;
+        this.cachedSectionService = cachedSectionService;
+    }
+
+    //    SECTION + EVERY SECTION BUILT FROM THE SAME UPSTREAM (vd: raw -> section1, section6)
+    public Map<String, Set<String>> invalidateSections(Collection<String> sectionKeys) {
+        Set<String> tags = new LinkedHashSet<>();
+        sectionKeys.forEach(key -> tags.addAll(cachedSectionService.tagsOf(key)));
+        return invalidate(tags);
+    }
+
+    public Map<String, Set<String>> invalidate(Collection<String> tags) {
+        cachedSectionService.forgetUpstream(tags);
+        Map<String, Set<String>> keysByCache = tagIndex.keysByCache(tags);
+
+        keysByCache.forEach((cacheName, keys) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof TwoTierCache twoTierCache) {
+                twoTierCache.evictAll(keys);
+            } else if (cache != null) {
+                keys.forEach(cache::evict);
+            }
+        });
+
+        Set<String> sections = keysByCache.getOrDefault("homepage", Set.of());
+        HomepageSnapshotStore.GROUP_SECTIONS.forEach((group, groupSections) -> {
+            if (groupSections.stream().anyMatch(sections::contains)) snapshotStore.evictGroup(group);
+        });
+
+        log.info("🏷️ Invalidated tags {} → {}", tags, keysByCache);
+        return keysByCache;
+    }
+}
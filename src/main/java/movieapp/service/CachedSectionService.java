@@ -1,48 +1,136 @@
 package movieapp.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheFingerprints;
+import movieapp.cache.CacheTagIndex;
 import movieapp.client.OphimClient;
+import movieapp.client.OphimDetailCache;
+import movieapp.client.OphimItemProjection;
 import movieapp.dto.HomepageReponse.HomepageResponse;
 import movieapp.dto.OphimResponse.OphimHomepageResponse;
 import movieapp.dto.OphimResponse.OphimListResponse;
+import movieapp.dto.OphimResponse.OphimMovieDetail;
 import movieapp.dto.OphimResponse.OphimMovieDetailResponse;
 import movieapp.dto.OphimResponse.OphimMovieItem;
 import movieapp.dto.CustomFieldsResponse.MovieItemDTO;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class CachedSectionService {
     private final OphimClient ophimClient;
+    private final OphimDetailCache detailCache;
     private final ImageOptimizationService imageService;
     private final ExecutorService executorService;
+    private final CacheManager cacheManager;
+    // Response Ophim giữ ngắn hạn: fingerprint rồi build cùng 1 refresh chỉ gọi upstream 1 lần
+    private final Cache<String, Object> upstreamResponses;
+    // Phần enrich (content + ảnh tối ưu) theo slug, dùng lại khi modified.time không đổi: không đọc detail / DB ảnh
+    private final Cache<String, Enrichment> enrichments;
+
+    private static final String HOMEPAGE_MEMO_KEY = "home";
+    private static final int SECTION_SIZE = 14;
+    public static final String HOMEPAGE_TAG = "ophim:home";
+    private static final Set<String> PAGING_PARAMS = Set.of("page", "limit", "sort_field", "sort_type");
+
+    private record Enrichment(String modifiedTime, String content, String optimizedThumb, String optimizedPoster) {
+    }
+
+    //    1 LIST CALL TO OPHIM (slug + query params)
+    private record ListQuery(String slug, Map<String, String> params) {
+        String memoKey() {
+            return slug + "?" + new TreeMap<>(params);
+        }
+
+        //    ophim:list:{slug}?{filters} (không tính phân trang / sort)
+        String tag() {
+            return "ophim:list:" + slug + "?" + new TreeMap<>(params).entrySet().stream()
+                    .filter(param -> !PAGING_PARAMS.contains(param.getKey()))
+                    .map(param -> param.getKey() + "=" + param.getValue())
+                    .collect(Collectors.joining("&"));
+        }
+    }
 
-    public CachedSectionService(OphimClient ophimClient, ImageOptimizationService imageService, @Qualifier("taskExecutor") ExecutorService executorService) {
+    public CachedSectionService(OphimClient ophimClient, OphimDetailCache detailCache, ImageOptimizationService imageService,
+                                CacheTagIndex cacheTagIndex, CacheFingerprints cacheFingerprints, CacheManager cacheManager,
+                                @Qualifier("taskExecutor") ExecutorService executorService,
+                                @Value("${app.ophim.response-memo-seconds:30}") long responseMemoSeconds,
+                                @Value("${app.cache.movie-enrichment.max-entries:2000}") long enrichmentMaxEntries,
+                                @Value("${app.cache.movie-enrichment.ttl-hours:168}") long enrichmentTtlHours) {
         this.ophimClient = ophimClient;
+        this.detailCache = detailCache;
         this.imageService = imageService;
         this.executorService = executorService;
+        this.cacheManager = cacheManager;
+        this.upstreamResponses = Caffeine.newBuilder()
+                .maximumSize(64)
+                .expireAfterWrite(Duration.ofSeconds(responseMemoSeconds))
+                .build();
+        this.enrichments = Caffeine.newBuilder()
+                .maximumSize(enrichmentMaxEntries)
+                .expireAfterWrite(Duration.ofHours(enrichmentTtlHours))
+                .build();
+        cacheTagIndex.register("homepage", this::tagsOf);
+        cacheFingerprints.register("homepage", this::fingerprintOfBuilt);
     }
 
     //    FETCH RAW OPHIM
-    @Cacheable(value = "homepage", key = "'raw'")
+    @Cacheable(value = "homepage", key = "'raw'", sync = true)
     public OphimHomepageResponse fetchHomepageRaw() {
+        return buildHomepageRaw();
+    }
+
+    public OphimHomepageResponse buildHomepageRaw() {
         log.info("📥 Fetching raw homepage data from Ophim...");
-        return ophimClient.getHomepage();
+        return (OphimHomepageResponse) upstreamResponses.get(HOMEPAGE_MEMO_KEY, key -> ophimClient.getHomepage());
     }
 
+    //    RAW FOR SECTION 1 / 6: response vừa lấy (cùng refresh) -> raw đã cache -> Ophim
+    private OphimHomepageResponse homepageRaw() {
+        OphimHomepageResponse raw = availableHomepageRaw();
+        return raw != null ? raw : buildHomepageRaw();
+    }
+
+    //    RAW ALREADY AT HAND (memo -> cache), null = phải gọi Ophim
+    private OphimHomepageResponse availableHomepageRaw() {
+        Object memo = upstreamResponses.getIfPresent(HOMEPAGE_MEMO_KEY);
+        if (memo != null) return (OphimHomepageResponse) memo;
 
-    @Cacheable(value = "homepage", key = "'section1'")
+        try {
+            return cacheManager.getCache("homepage").get("raw", OphimHomepageResponse.class);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Could not read cached raw homepage: {}", e.getMessage());
+            return null;
+        }
+    }
+
+
+    @Cacheable(value = "homepage", key = "'section1'", sync = true)
     public List<MovieItemDTO> fetchSection1() {
+        return buildSection1();
+    }
+
+    public List<MovieItemDTO> buildSection1() {
         log.info("📥 Fetching Section 1 (7 items with POSTER + CONTENT - PARALLEL)...");
-        OphimHomepageResponse rawData = fetchHomepageRaw();
+        OphimHomepageResponse rawData = homepageRaw();
         List<OphimMovieItem> rawItems = rawData.getData().getItems();
 
         List<OphimMovieItem> first7Items = rawItems.stream().limit(7).collect(Collectors.toList());
@@ -50,17 +138,21 @@ public class CachedSectionService {
         return fetchItemsWithDetailParallel(first7Items);
     }
 
-    @Cacheable(value = "homepage", key = "'section2'")
+    @Cacheable(value = "homepage", key = "'section2'", sync = true)
     public HomepageResponse.Section2Data fetchSection2() {
+        return buildSection2();
+    }
+
+    public HomepageResponse.Section2Data buildSection2() {
         log.info("📥 Fetching Section 2...");
-        List<MovieItemDTO> listKorea = listKoreaRaw();
-        List<MovieItemDTO> listChina = listChinaRaw();
-        List<MovieItemDTO> listUSUK = listUSUKRaw();
+        CompletableFuture<List<MovieItemDTO>> listKorea = CompletableFuture.supplyAsync(this::listKoreaRaw, executorService);
+        CompletableFuture<List<MovieItemDTO>> listChina = CompletableFuture.supplyAsync(this::listChinaRaw, executorService);
+        CompletableFuture<List<MovieItemDTO>> listUSUK = CompletableFuture.supplyAsync(this::listUSUKRaw, executorService);
 
         return HomepageResponse.Section2Data.builder()
-                .ListKorea(listKorea)
-                .ListChina(listChina)
-                .ListUSAndUK(listUSUK)
+                .ListKorea(listKorea.join())
+                .ListChina(listChina.join())
+                .ListUSAndUK(listUSUK.join())
                 .build();
     }
 
@@ -68,230 +160,380 @@ public class CachedSectionService {
     public List<MovieItemDTO> listKoreaRaw() {
         log.info("📥 Fetching Section 2 List Korea...");
 
-        Map<String, String> params = new HashMap<>();
-        params.put("country", "han-quoc");
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(koreaQuery());
     }
 
     //    FETCH SECTION 2 LIST CHINA
     public List<MovieItemDTO> listChinaRaw() {
         log.info("📥 Fetching Section 2 List China...");
 
-        Map<String, String> params = new HashMap<>();
-        params.put("country", "trung-quoc");
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(chinaQuery());
     }
 
     //    FETCH SECTION 2 US/UK
     public List<MovieItemDTO> listUSUKRaw() {
         log.info("📥 Fetching Section 2 List US/UK...");
 
-        Map<String, String> params = new HashMap<>();
-        params.put("country", "au-my");
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(usukQuery());
     }
 
 
     //    FETCH SECTION 3 SERIES
-    @Cacheable(value = "homepage", key = "'section3'")
+    @Cacheable(value = "homepage", key = "'section3'", sync = true)
     public List<MovieItemDTO> fetchSection3() {
-        log.info("📥 Fetching Section 3 List Series...");
+        return buildSection3();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("year", String.valueOf(Calendar.getInstance().get(Calendar.YEAR)));
+    public List<MovieItemDTO> buildSection3() {
+        log.info("📥 Fetching Section 3 List Series...");
 
-        return fetchListSection("phim-bo", params);
+        return fetchListSection(seriesQuery());
     }
 
     //    FETCH SECTION 4 ACTION
-    @Cacheable(value = "homepage", key = "'section4'")
+    @Cacheable(value = "homepage", key = "'section4'", sync = true)
     public List<MovieItemDTO> fetchSection4() {
-        log.info("📥 Fetching Section 4 List Action...");
+        return buildSection4();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("category", "hanh-dong");
+    public List<MovieItemDTO> buildSection4() {
+        log.info("📥 Fetching Section 4 List Action...");
 
-        return fetchListSection("phim-chieu-rap", params);
+        return fetchListSection(actionQuery());
     }
 
     //    FETCH SECTION 5 SINGLE
-    @Cacheable(value = "homepage", key = "'section5'")
+    @Cacheable(value = "homepage", key = "'section5'", sync = true)
     public List<MovieItemDTO> fetchSection5() {
-        log.info("📥 Fetching Section 5 List Single...");
+        return buildSection5();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("year", String.valueOf(Calendar.getInstance().get(Calendar.YEAR)));
+    public List<MovieItemDTO> buildSection5() {
+        log.info("📥 Fetching Section 5 List Single...");
 
-        return fetchListSection("phim-le", params);
+        return fetchListSection(singleQuery());
     }
 
-    @Cacheable(value = "homepage", key = "'section6'")
+    @Cacheable(value = "homepage", key = "'section6'", sync = true)
     public List<MovieItemDTO> fetchSection6() {
+        return buildSection6();
+    }
+
+    public List<MovieItemDTO> buildSection6() {
         log.info("📥 Fetching Section 6 (14 items WITHOUT detail)...");
-        OphimHomepageResponse rawData = fetchHomepageRaw();
+        OphimHomepageResponse rawData = homepageRaw();
         List<OphimMovieItem> rawItems = rawData.getData().getItems();
 
         return rawItems.stream().skip(7).limit(14).map(this::processItemWithoutDetail).collect(Collectors.toList());
     }
 
     //    FETCH SECTION 7 HORROR
-    @Cacheable(value = "homepage", key = "'section7'")
+    @Cacheable(value = "homepage", key = "'section7'", sync = true)
     public List<MovieItemDTO> fetchSection7() {
-        log.info("📥 Fetching Section 7 List HORROR...");
+        return buildSection7();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("category", "kinh-di");
-        params.put("country", "thai-lan");
+    public List<MovieItemDTO> buildSection7() {
+        log.info("📥 Fetching Section 7 List HORROR...");
 
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(horrorQuery());
     }
 
     //    FETCH SECTION 8 KOREA LOVE
-    @Cacheable(value = "homepage", key = "'section8'")
+    @Cacheable(value = "homepage", key = "'section8'", sync = true)
     public List<MovieItemDTO> fetchSection8() {
-        log.info("📥 Fetching Section 8 List Korea Love...");
+        return buildSection8();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("category", "tinh-cam");
-        params.put("country", "han-quoc");
+    public List<MovieItemDTO> buildSection8() {
+        log.info("📥 Fetching Section 8 List Korea Love...");
 
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(koreaLoveQuery());
     }
 
     //    FETCH SECTION 9 CARTOON (WITH CONTENT)
-    @Cacheable(value = "homepage", key = "'section9'")
+    @Cacheable(value = "homepage", key = "'section9'", sync = true)
     public List<MovieItemDTO> fetchSection9() {
-        log.info("📥 Fetching Section 9 (Cartoon)...");
+        return buildSection9();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("country", "nhat-ban, han-quoc");
+    public List<MovieItemDTO> buildSection9() {
+        log.info("📥 Fetching Section 9 (Cartoon)...");
 
-        OphimListResponse response = ophimClient.getListBySlug("hoat-hinh", params);
-        List<OphimMovieItem> items = response.getData().getItems();
+        List<OphimMovieItem> items = listItems(cartoonQuery());
 
-        return fetchItemsWithDetailParallel(items.stream().limit(14).collect(Collectors.toList()));
+        return fetchItemsWithDetailParallel(items.stream().limit(SECTION_SIZE).collect(Collectors.toList()));
     }
 
     //    FETCH SECTION 10 CRIME
-    @Cacheable(value = "homepage", key = "'section10'")
+    @Cacheable(value = "homepage", key = "'section10'", sync = true)
     public List<MovieItemDTO> fetchSection10() {
-        log.info("📥 Fetching Section 10 List Crime...");
+        return buildSection10();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("category", "hinh-su");
+    public List<MovieItemDTO> buildSection10() {
+        log.info("📥 Fetching Section 10 List Crime...");
 
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(crimeQuery());
     }
 
     //    FETCH SECTION 11 SECRET
-    @Cacheable(value = "homepage", key = "'section11'")
+    @Cacheable(value = "homepage", key = "'section11'", sync = true)
     public List<MovieItemDTO> fetchSection11() {
-        log.info("📥 Fetching Section 11 List Secret...");
+        return buildSection11();
+    }
 
-        Map<String, String> params = new HashMap<>();
-        params.put("page", "1");
-        params.put("limit", "14");
-        params.put("sort_field", "year");
-        params.put("sort_type", "desc");
-        params.put("category", "bi-an");
+    public List<MovieItemDTO> buildSection11() {
+        log.info("📥 Fetching Section 11 List Secret...");
 
-        return fetchListSection("phim-moi", params);
+        return fetchListSection(secretQuery());
     }
 
     //    FETCH SECTION 12 ADVENTURE
-    @Cacheable(value = "homepage", key = "'section12'")
+    @Cacheable(value = "homepage", key = "'section12'", sync = true)
     public List<MovieItemDTO> fetchSection12() {
+        return buildSection12();
+    }
+
+    public List<MovieItemDTO> buildSection12() {
         log.info("📥 Fetching Section 12 List Adventure...");
 
-        Map<String, String> params = new HashMap<>();
+        return fetchListSection(adventureQuery());
+    }
+
+    //  BUILD ONE SECTION WITHOUT TOUCHING THE CACHE (used by refresh)
+    public Object buildSection(String sectionKey) {
+        return switch (sectionKey) {
+            case "raw" -> buildHomepageRaw();
+            case "section1" -> buildSection1();
+            case "section2" -> buildSection2();
+            case "section3" -> buildSection3();
+            case "section4" -> buildSection4();
+            case "section5" -> buildSection5();
+            case "section6" -> buildSection6();
+            case "section7" -> buildSection7();
+            case "section8" -> buildSection8();
+            case "section9" -> buildSection9();
+            case "section10" -> buildSection10();
+            case "section11" -> buildSection11();
+            case "section12" -> buildSection12();
+            default -> throw new IllegalArgumentException("Unknown section: " + sectionKey);
+        };
+    }
+
+    // ===================================
+    // CHANGE DETECTION: fingerprint of upstream slugs + modified.time
+    // ===================================
+    public String fingerprintSection(String sectionKey) {
+        return fingerprint(sectionKey, query -> query == null ? buildHomepageRaw().getData().getItems() : listItems(query));
+    }
+
+    //    WRITE PATH (@Cacheable, SWR...): fingerprint of the responses the build just used, never calls Ophim
+    public String fingerprintOfBuilt(String sectionKey) {
+        return fingerprint(sectionKey, query -> {
+            if (query == null) {
+                OphimHomepageResponse raw = availableHomepageRaw();
+                return raw != null ? raw.getData().getItems() : null;
+            }
+            return upstreamResponses.getIfPresent(query.memoKey()) instanceof OphimListResponse response
+                    ? response.getData().getItems() : null;
+        });
+    }
+
+    //    null = một response upstream không còn trong tay
+    private String fingerprint(String sectionKey, Function<ListQuery, List<OphimMovieItem>> source) {
+        MessageDigest digest = sha256();
+        for (ListQuery query : upstreamOf(sectionKey)) {
+            List<OphimMovieItem> items = source.apply(query);
+            if (items == null) return null;
+            digest.update((query == null ? HOMEPAGE_MEMO_KEY : query.memoKey()).getBytes(StandardCharsets.UTF_8));
+            for (OphimMovieItem item : items) {
+                digest.update((item.getSlug() + "|" + OphimDetailCache.modifiedTime(item) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    // null = Ophim /home
+    private List<ListQuery> upstreamOf(String sectionKey) {
+        return switch (sectionKey) {
+            case "raw", "section1", "section6" -> Collections.singletonList(null);
+            case "section2" -> List.of(koreaQuery(), chinaQuery(), usukQuery());
+            case "section3" -> List.of(seriesQuery());
+            case "section4" -> List.of(actionQuery());
+            case "section5" -> List.of(singleQuery());
+            case "section7" -> List.of(horrorQuery());
+            case "section8" -> List.of(koreaLoveQuery());
+            case "section9" -> List.of(cartoonQuery());
+            case "section10" -> List.of(crimeQuery());
+            case "section11" -> List.of(secretQuery());
+            case "section12" -> List.of(adventureQuery());
+            default -> throw new IllegalArgumentException("Unknown section: " + sectionKey);
+        };
+    }
+
+    // ===================================
+    // TAGS: upstream sources of a section (for cascading invalidation)
+    // ===================================
+    public List<String> tagsOf(String sectionKey) {
+        return upstreamOf(sectionKey).stream().map(query -> query == null ? HOMEPAGE_TAG : query.tag()).toList();
+    }
+
+    //    FORGET MEMOIZED OPHIM RESPONSES OF THESE TAGS (next build hits Ophim)
+    public void forgetUpstream(Collection<String> tags) {
+        for (String sectionKey : SectionGraph.allSections()) {
+            for (ListQuery query : upstreamOf(sectionKey)) {
+                String tag = query == null ? HOMEPAGE_TAG : query.tag();
+                if (tags.contains(tag)) upstreamResponses.invalidate(query == null ? HOMEPAGE_MEMO_KEY : query.memoKey());
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ===================================
+    // OPHIM LIST QUERIES
+    // ===================================
+    private ListQuery koreaQuery() {
+        return new ListQuery("phim-moi", listParams("country", "han-quoc"));
+    }
+
+    private ListQuery chinaQuery() {
+        return new ListQuery("phim-moi", listParams("country", "trung-quoc"));
+    }
+
+    private ListQuery usukQuery() {
+        return new ListQuery("phim-moi", listParams("country", "au-my"));
+    }
+
+    private ListQuery seriesQuery() {
+        return new ListQuery("phim-bo", listParams("year", String.valueOf(Calendar.getInstance().get(Calendar.YEAR))));
+    }
+
+    private ListQuery actionQuery() {
+        return new ListQuery("phim-chieu-rap", listParams("category", "hanh-dong"));
+    }
+
+    private ListQuery singleQuery() {
+        return new ListQuery("phim-le", listParams("year", String.valueOf(Calendar.getInstance().get(Calendar.YEAR))));
+    }
+
+    private ListQuery horrorQuery() {
+        return new ListQuery("phim-moi", listParams("category", "kinh-di", "country", "thai-lan"));
+    }
+
+    private ListQuery koreaLoveQuery() {
+        return new ListQuery("phim-moi", listParams("category", "tinh-cam", "country", "han-quoc"));
+    }
+
+    private ListQuery cartoonQuery() {
+        return new ListQuery("hoat-hinh", listParams("country", "nhat-ban, han-quoc"));
+    }
+
+    private ListQuery crimeQuery() {
+        return new ListQuery("phim-moi", listParams("category", "hinh-su"));
+    }
+
+    private ListQuery secretQuery() {
+        return new ListQuery("phim-moi", listParams("category", "bi-an"));
+    }
+
+    private ListQuery adventureQuery() {
+        return new ListQuery("phim-moi", listParams("category", "phieu-luu"));
+    }
+
+    //    HELPER: PAGE 1, 14 ITEMS, NEWEST YEAR FIRST + FILTERS
+    private static Map<String, String> listParams(String... filters) {
+        Map<String, String> params = new LinkedHashMap<>();
         params.put("page", "1");
-        params.put("limit", "14");
+        params.put("limit", String.valueOf(SECTION_SIZE));
         params.put("sort_field", "year");
         params.put("sort_type", "desc");
-        params.put("category", "phieu-luu");
+        for (int i = 0; i + 1 < filters.length; i += 2) {
+            params.put(filters[i], filters[i + 1]);
+        }
+        return params;
+    }
 
-        return fetchListSection("phim-moi", params);
+    //    HELPER: LIST ITEMS (memoized for a few seconds)
+    private List<OphimMovieItem> listItems(ListQuery query) {
+        OphimListResponse response = (OphimListResponse) upstreamResponses.get(query.memoKey(),
+                key -> ophimClient.getListBySlug(query.slug(), query.params(), OphimItemProjection.CARD, SECTION_SIZE));
+        return response.getData().getItems();
     }
 
     //  HELPER: FETCH LIST SECTION (NO CONTENT)
-    private List<MovieItemDTO> fetchListSection(String slug, Map<String, String> params) {
-        OphimListResponse response = ophimClient.getListBySlug(slug, params);
-        List<OphimMovieItem> items = response.getData().getItems();
+    private List<MovieItemDTO> fetchListSection(ListQuery query) {
+        List<OphimMovieItem> items = listItems(query);
 
         return items.stream()
-                .limit(14)
+                .limit(SECTION_SIZE)
                 .map(this::processItemWithoutDetail)
                 .collect(Collectors.toList());
     }
 
-    //    PARALLEL FETCH DETAIL
+    //    PARALLEL FETCH DETAIL (shared detail cache: only new / changed movies hit Ophim)
+    //    Call Ophim async (không giữ thread khi chờ), chỉ phần enrich (ảnh / DB) chạy trên executor
     private List<MovieItemDTO> fetchItemsWithDetailParallel(List<OphimMovieItem> items) {
-        log.info("🚀 Fetching detail for {} items in PARALLEL...", items.size());
+        // modified.time không đổi -> dùng lại phần enrich, chỉ phim đổi mới cần detail + ảnh
+        Map<String, MovieItemDTO> unchanged = new HashMap<>();
+        List<OphimMovieItem> changed = new ArrayList<>();
+        for (OphimMovieItem item : items) {
+            String modified = OphimDetailCache.modifiedTime(item);
+            Enrichment enrichment = item.getSlug() != null ? enrichments.getIfPresent(item.getSlug()) : null;
+            if (enrichment != null && modified != null && modified.equals(enrichment.modifiedTime())) {
+                unchanged.put(item.getSlug(), applyEnrichment(item, enrichment));
+            } else {
+                changed.add(item);
+            }
+        }
+        log.info("🚀 Resolving detail for {} of {} items in PARALLEL ({} unchanged)...", changed.size(), items.size(), unchanged.size());
+        Map<String, CompletableFuture<OphimMovieDetailResponse>> details = detailCache.getMany(changed);
+
         List<CompletableFuture<MovieItemDTO>> futures = items.stream()
-                .map(item -> CompletableFuture.supplyAsync(() -> processItemWithDetail(item), executorService))
+                .map(item -> unchanged.containsKey(item.getSlug())
+                        ? CompletableFuture.completedFuture(unchanged.get(item.getSlug()))
+                        : details.getOrDefault(item.getSlug(), CompletableFuture.failedFuture(new IllegalStateException("item has no slug")))
+                        .thenApplyAsync(detailResponse -> processItemWithDetail(item, detailResponse), executorService)
+                        .exceptionally(error -> withoutContent(item, error)))
                 .collect(Collectors.toList());
 
         return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
     }
 
-    //    HELPER: GET MOVIE DETAIL
-    private MovieItemDTO processItemWithDetail(OphimMovieItem item) {
+    //    HELPER: APPLY MOVIE DETAIL (ảnh tối ưu đã lưu trong DB, không upload lại)
+    private MovieItemDTO processItemWithDetail(OphimMovieItem item, OphimMovieDetailResponse detailResponse) {
+        OphimMovieDetail detail = detailResponse.getData().getItem();
+        Enrichment enrichment = new Enrichment(OphimDetailCache.modifiedTime(item), detail.getContent(),
+                imageService.optimizeThumb(detail.getThumbUrl(), detail.getSlug()),
+                imageService.optimizedPoster(detail.getPosterUrl(), detail.getSlug()));
+        if (enrichment.modifiedTime() != null) enrichments.put(item.getSlug(), enrichment);
+        return applyEnrichment(item, enrichment);
+    }
+
+    private MovieItemDTO applyEnrichment(OphimMovieItem item, Enrichment enrichment) {
         MovieItemDTO dto = new MovieItemDTO();
         BeanUtils.copyProperties(item, dto);
 
-        try {
-            log.debug("📄 Fetching content for: {}", item.getSlug());
-            OphimMovieDetailResponse detailResponse = ophimClient.getMovieDetail(item.getSlug());
-            dto.setContent(detailResponse.getData().getItem().getContent());
-            dto.setOptimizedThumb(imageService.optimizeThumb(detailResponse.getData().getItem().getThumbUrl(), detailResponse.getData().getItem().getSlug()));
-            dto.setOptimizedPoster(imageService.optimizedPoster(detailResponse.getData().getItem().getPosterUrl(), detailResponse.getData().getItem().getSlug()));
-        } catch (Exception e) {
-            log.warn("⚠️ Failed to fetch content for {}: {}", item.getSlug(), e.getMessage());
-            dto.setContent(null);
-        }
+        dto.setContent(enrichment.content());
+        dto.setOptimizedThumb(enrichment.optimizedThumb());
+        dto.setOptimizedPoster(enrichment.optimizedPoster());
+        return dto;
+    }
+
+    //    HELPER: DETAIL FAILED -> ITEM WITHOUT CONTENT
+    private MovieItemDTO withoutContent(OphimMovieItem item, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.warn("⚠️ Failed to fetch content for {}: {}", item.getSlug(), cause.getMessage());
+        MovieItemDTO dto = new MovieItemDTO();
+        BeanUtils.copyProperties(item, dto);
+        dto.setContent(null);
         return dto;
     }
 
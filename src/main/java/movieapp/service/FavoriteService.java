@@ -2,7 +2,8 @@ package movieapp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import movieapp.client.OphimClient;
+import movieapp.client.OphimDetailCache;
+import movieapp.client.OphimResilience;
 import movieapp.domain.Favorite;
 import movieapp.domain.OptimizedImage;
 import movieapp.domain.User;
@@ -34,7 +35,7 @@ import java.util.stream.Collectors;
 public class FavoriteService {
     private final FavoriteRepository favoriteRepository;
     private final UserRepository userRepository;
-    private final OphimClient ophimClient;
+    private final OphimDetailCache detailCache;
     private final OptimizedImageRepository optimizedImageRepository;
     private final ImageOptimizationService imageOptimizationService;
     private static final String IMAGE_TYPE_THUMB = "thumb";
@@ -135,7 +136,7 @@ public class FavoriteService {
 
         if (dto.getPosterUrl() == null || dto.getThumbUrl() == null) {
             try {
-                OphimMovieDetailResponse detail = ophimClient.getMovieDetail(dto.getMovieSlug());
+                OphimMovieDetailResponse detail = detailCache.get(dto.getMovieSlug(), OphimResilience.Lane.USER);
                 OphimMovieDetail movie = detail.getData().getItem();
                 poster = imageOptimizationService.buildFullUrl(movie.getPosterUrl());
                 thumb = imageOptimizationService.buildFullUrl(movie.getThumbUrl());
@@ -0,0 +1,5 @@
+package movieapp.service;
+
+// Reader thấy snapshot sắp hết hạn (XFetch) -> xin refresh nền cho group
+public record GroupRefreshRequestedEvent(String group) {
+}
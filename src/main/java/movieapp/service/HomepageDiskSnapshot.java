@@ -0,0 +1,143 @@
+package movieapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheValueCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+// Last-known-good: toàn bộ section homepage trên disk (mmap), đọc lúc boot và khi Redis down
+// File: [MAGIC][VERSION][savedAt][payload length][CRC32][payload (CacheValueCodec)]
+@Service
+@Slf4j
+public class HomepageDiskSnapshot {
+    private static final int MAGIC = 0x4D565348; // "MVSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES * 2;
+
+    private final CacheValueCodec codec;
+    private final Path path;
+    private final boolean enabled;
+    private volatile Map<String, Object> sections = Map.of();
+    private volatile long savedAt;
+
+    public HomepageDiskSnapshot(CacheValueCodec codec,
+                                @Value("${app.cache.disk-snapshot.path:data/homepage-snapshot.bin}") String path,
+                                @Value("${app.cache.disk-snapshot.enabled:true}") boolean enabled) {
+        this.codec = codec;
+        this.path = Paths.get(path).toAbsolutePath();
+        this.enabled = enabled;
+        if (enabled) load();
+    }
+
+    // ===================================
+    // READ: only whole groups (never a half-filled group)
+    // ===================================
+    public Optional<Map<String, Object>> readGroup(String group) {
+        List<String> keys = HomepageSnapshotStore.GROUP_SECTIONS.get(group);
+        Map<String, Object> current = sections;
+        if (keys == null || !current.keySet().containsAll(keys)) return Optional.empty();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        keys.forEach(key -> result.put(key, current.get(key)));
+        return Optional.of(result);
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    // ===================================
+    // WRITE: merge fresh sections, rewrite file atomically (tmp + rename)
+    // ===================================
+    public synchronized void save(Map<String, Object> fresh) {
+        if (!enabled || fresh.isEmpty()) return;
+
+        Map<String, Object> merged = new LinkedHashMap<>(sections);
+        merged.putAll(fresh);
+        long now = System.currentTimeMillis();
+        try {
+            write(merged, now);
+            sections = Map.copyOf(merged);
+            savedAt = now;
+            log.debug("💾 Disk snapshot saved ({} sections) to {}", merged.size(), path);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not write disk snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void write(Map<String, Object> values, long now) throws IOException {
+        byte[] payload = codec.serialize(values);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + payload.length);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(now)
+                    .putInt(payload.length)
+                    .putLong(crc.getValue())
+                    .put(payload);
+            buffer.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ===================================
+    // LOAD ON BOOT (corrupt / missing file -> start empty)
+    // ===================================
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (!Files.isRegularFile(path)) {
+            log.info("📭 No disk snapshot at {}, starting empty", path);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("file too small (" + size + " bytes)");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) throw new IOException("unknown format");
+            long fileSavedAt = buffer.getLong();
+            int length = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (length < 0 || length != size - HEADER_BYTES) throw new IOException("truncated payload");
+
+            ByteBuffer payloadView = buffer.slice();
+            CRC32 crc = new CRC32();
+            crc.update(payloadView.duplicate());
+            if (crc.getValue() != checksum) throw new IOException("checksum mismatch");
+
+            byte[] payload = new byte[length];
+            payloadView.get(payload);
+            Object decoded = codec.deserialize(payload);
+            if (!(decoded instanceof Map<?, ?> map)) throw new IOException("unexpected payload " + decoded);
+
+            sections = Map.copyOf((Map<String, Object>) map);
+            savedAt = fileSavedAt;
+            log.info("💾 Loaded disk snapshot: {} sections, saved {}s ago",
+                    sections.size(), (System.currentTimeMillis() - fileSavedAt) / 1000);
+        } catch (Exception e) {
+            log.warn("⚠️ Ignoring unreadable disk snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
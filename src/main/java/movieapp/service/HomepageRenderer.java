@@ -0,0 +1,64 @@
+package movieapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import movieapp.dto.HomepageReponse.HomepageGroupResponse;
+import movieapp.dto.RestResponse;
+import movieapp.util.FormatResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class HomepageRenderer {
+    private final ObjectMapper objectMapper;
+
+    // Brotli cần native encoder (không chạy trên image alpine) nên chỉ lưu identity + gzip
+    public record RenderedBody(String etag, byte[] identity, byte[] gzip) {
+    }
+
+    public HomepageRenderer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    //    RENDER FINAL HTTP BODY (same shape FormatResponse would produce)
+    public RenderedBody render(HomepageGroupResponse response) {
+        RestResponse<Object> wrapped = new RestResponse<>();
+        wrapped.setStatusCode(HttpStatus.OK.value());
+        wrapped.setMessage(FormatResponse.DEFAULT_MESSAGE);
+        wrapped.setData(response);
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(wrapped);
+            byte[] gzip = gzip(json);
+            log.debug("🖨️ Rendered group {}: {} bytes (gzip {} bytes)", response.getGroup(), json.length, gzip.length);
+            return new RenderedBody(etag(json), json, gzip);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to render homepage group " + response.getGroup(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
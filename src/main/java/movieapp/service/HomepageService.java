@@ -1,22 +1,102 @@
 package movieapp.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.EarlyRefreshPolicy;
+import movieapp.cache.RedisCircuitBreaker;
+import movieapp.client.UpstreamFailureCache;
 import movieapp.dto.HomepageReponse.HomepageGroupResponse;
 import movieapp.dto.HomepageReponse.HomepageResponse;
 import movieapp.dto.MetaAndHead.SeoOnPage;
 import movieapp.dto.OphimResponse.OphimHomepageResponse;
 import movieapp.dto.CustomFieldsResponse.MovieItemDTO;
+import movieapp.service.HomepageRenderer.RenderedBody;
+import movieapp.util.Deadline;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class HomepageService {
     private final CachedSectionService cachedSectionService;
+    private final HomepageSnapshotStore snapshotStore;
+    private final HomepageRenderer renderer;
+    private final SectionGraph sectionGraph;
+    private final HomepageDiskSnapshot diskSnapshot;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final UpstreamFailureCache upstreamFailureCache;
+    private final ExecutorService homepageExecutor;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EarlyRefreshPolicy snapshotRefreshPolicy;
+    private final Map<String, Long> refreshRequestedAt = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, CompletableFuture<Object>>> pendingLoads = new HashMap<>();
+    private final Map<String, Supplier<Object>> sectionFetchers;
 
-    public HomepageService(CachedSectionService cachedSectionService) {
+    @Value("${app.homepage.prerender.enabled:true}")
+    private boolean prerenderEnabled;
+
+    @Value("${app.cache.ttl-minutes:60}")
+    private long softTtlMinutes;
+
+    // Request homepage chờ tối đa chừng này (cold path), phần còn lại trả về dạng pending
+    @Value("${app.homepage.request-deadline-ms:1500}")
+    private long requestDeadlineMs;
+
+    // Giới hạn cho phần tính nền (Ophim call sau mốc này bị bỏ)
+    @Value("${app.homepage.compute-timeout-seconds:30}")
+    private long computeTimeoutSeconds;
+
+    // Mỗi instance chỉ xin refresh 1 lần / group trong khoảng này
+    @Value("${app.cache.xfetch.request-interval-seconds:60}")
+    private long refreshRequestIntervalSeconds;
+
+    public HomepageService(CachedSectionService cachedSectionService, HomepageSnapshotStore snapshotStore,
+                           HomepageRenderer renderer, SectionGraph sectionGraph, HomepageDiskSnapshot diskSnapshot, RedisCircuitBreaker redisCircuitBreaker,
+                           UpstreamFailureCache upstreamFailureCache,
+                           @Qualifier("homepageExecutor") ExecutorService homepageExecutor, MeterRegistry meterRegistry,
+                           ApplicationEventPublisher eventPublisher, @Value("${app.cache.xfetch.beta:1.0}") double xfetchBeta) {
         this.cachedSectionService = cachedSectionService;
+        this.snapshotStore = snapshotStore;
+        this.renderer = renderer;
+        this.sectionGraph = sectionGraph;
+        this.diskSnapshot = diskSnapshot;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.upstreamFailureCache = upstreamFailureCache;
+        this.homepageExecutor = homepageExecutor;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.snapshotRefreshPolicy = new EarlyRefreshPolicy("homepage-snapshot", xfetchBeta, meterRegistry);
+        this.sectionFetchers = Map.ofEntries(
+                Map.entry("raw", cachedSectionService::fetchHomepageRaw),
+                Map.entry("section1", cachedSectionService::fetchSection1),
+                Map.entry("section2", cachedSectionService::fetchSection2),
+                Map.entry("section3", cachedSectionService::fetchSection3),   // Series
+                Map.entry("section4", cachedSectionService::fetchSection4),   // Action
+                Map.entry("section5", cachedSectionService::fetchSection5),   // Single
+                Map.entry("section6", cachedSectionService::fetchSection6),   // New Movie
+                Map.entry("section7", cachedSectionService::fetchSection7),   // Horror
+                Map.entry("section8", cachedSectionService::fetchSection8),   // Korea Love
+                Map.entry("section9", cachedSectionService::fetchSection9),   // Cartoon - CÓ content
+                Map.entry("section10", cachedSectionService::fetchSection10), // Crime
+                Map.entry("section11", cachedSectionService::fetchSection11), // Secret
+                Map.entry("section12", cachedSectionService::fetchSection12)  // Adventure
+        );
     }
 
     public HomepageGroupResponse getHomepageByGroup(String group) {
@@ -24,95 +104,299 @@ public class HomepageService {
         long startTime = System.currentTimeMillis();
 
         try {
-            HomepageGroupResponse.HomepageGroupResponseBuilder builder = HomepageGroupResponse
-                    .builder()
-                    .message("Success")
-                    .cachedAt(System.currentTimeMillis())
-                    .group(group);
-
-            switch (group.toLowerCase()) {
-                case "initial":
-                    builder.section1(cachedSectionService.fetchSection1())
-                            .section2(cachedSectionService.fetchSection2())
-                            .section3(cachedSectionService.fetchSection3())
-                            .section4(cachedSectionService.fetchSection4())
-                            .hasMore(true)
-                            .nextGroup("group1")
-                            .seoOnPage(new SeoOnPage());
-                    break;
-                case "group1":
-                    builder.section5(cachedSectionService.fetchSection5())
-                            .section6(cachedSectionService.fetchSection6())
-                            .section7(cachedSectionService.fetchSection7())
-                            .section8(cachedSectionService.fetchSection8())
-                            .hasMore(true)
-                            .nextGroup("group2");
-                    break;
-                case "group2":
-                    builder.section9(cachedSectionService.fetchSection9())
-                            .section10(cachedSectionService.fetchSection10())
-                            .section11(cachedSectionService.fetchSection11())
-                            .section12(cachedSectionService.fetchSection12())
-                            .hasMore(false)
-                            .nextGroup(null);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Invalid group: " + group);
-            }
+            String groupKey = group.toLowerCase();
+            Optional<Map<String, Object>> snapshot = readSnapshotSections(groupKey);
+            HomepageGroupResponse response = snapshot.isPresent()
+                    ? buildGroupResponse(groupKey, snapshot.get())
+                    : loadGroupWithinDeadline(groupKey);
             long duration = System.currentTimeMillis() - startTime;
             log.info("✅ Group {} loaded in {}ms", group, duration);
 
-            return builder.build();
+            return response;
         } catch (Exception e) {
             log.error("❌ Failed to fetch group {}: {}", group, e.getMessage());
             throw new RuntimeException("Failed to fetch homepage group: " + group, e);
         }
     }
 
+    //    HOT PATH: BYTES ALREADY RENDERED AT PUBLISH TIME
+    public Optional<RenderedBody> getRenderedGroup(String group) {
+        if (!prerenderEnabled) return Optional.empty();
+        try {
+            Optional<RenderedBody> body = redisCircuitBreaker.call(() -> snapshotStore.readRenderedBody(group));
+            if (body.isPresent()) {
+                redisCircuitBreaker.call(() -> snapshotStore.readGroup(group)).ifPresent(snapshot -> maybeRefreshEarly(group, snapshot));
+            }
+            return body;
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read rendered body for group {}: {}", group, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    //    REDIS SNAPSHOT -> DISK (Redis down) -> empty (cold path)
+    private Optional<Map<String, Object>> readSnapshotSections(String group) {
+        Optional<HomepageSnapshotStore.GroupSnapshot> snapshot;
+        try {
+            snapshot = redisCircuitBreaker.call(() -> snapshotStore.readGroup(group));
+        } catch (DataAccessException e) {
+            Optional<Map<String, Object>> fromDisk = diskSnapshot.readGroup(group);
+            if (fromDisk.isPresent()) {
+                log.warn("🔌 Redis unavailable ({}), serving group {} from disk snapshot", e.getMessage(), group);
+            }
+            return fromDisk;
+        }
+
+        if (snapshot.isPresent()) {
+            maybeRefreshEarly(group, snapshot.get());
+            return snapshot.map(HomepageSnapshotStore.GroupSnapshot::sections);
+        }
+
+        // Vừa boot / Redis trống: trả bản trên disk ngay, refresh nền thay vì bắt reader chờ Ophim
+        Optional<Map<String, Object>> fromDisk = diskSnapshot.readGroup(group);
+        if (fromDisk.isPresent()) {
+            log.info("💾 No snapshot in Redis for group {}, serving disk copy and refreshing", group);
+            requestRefresh(group, System.currentTimeMillis());
+        }
+        return fromDisk;
+    }
+
+    //    XFETCH: snapshot gần hết soft TTL -> refresh nền, reader vẫn nhận snapshot hiện tại
+    private void maybeRefreshEarly(String group, HomepageSnapshotStore.GroupSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        long expireAt = snapshot.meta().getCreatedAt() + TimeUnit.MINUTES.toMillis(softTtlMinutes);
+        if (!snapshotRefreshPolicy.shouldRefresh(snapshot.meta(), expireAt, now)) return;
+
+        if (requestRefresh(group, now)) {
+            log.info("⏩ Snapshot of group {} is near expiry (v{}), requested early refresh", group, snapshot.version());
+        }
+    }
+
+    //    AT MOST ONE REQUEST PER GROUP PER INTERVAL ON THIS INSTANCE
+    private boolean requestRefresh(String group, long now) {
+        if (upstreamFailureCache.isOutage()) return false;   // Ophim sập: giữ bản hiện tại, không refresh
+        long interval = TimeUnit.SECONDS.toMillis(refreshRequestIntervalSeconds);
+        Long previous = refreshRequestedAt.get(group);
+        if (previous != null && now - previous < interval) return false;
+        if (previous == null ? refreshRequestedAt.putIfAbsent(group, now) != null : !refreshRequestedAt.replace(group, previous, now)) return false;
+
+        try {
+            eventPublisher.publishEvent(new GroupRefreshRequestedEvent(group));
+        } catch (RejectedExecutionException e) {
+            // Refresh executor đầy: bỏ lần này, reader sau xin lại
+            refreshRequestedAt.remove(group, now);
+            log.warn("⚠️ Refresh executor busy, skipped refresh request for group {}", group);
+            return false;
+        }
+        return true;
+    }
+
+    //    RENDER ONCE PER PUBLISH (null = prerender disabled / failed -> serve via JSON path)
+    public RenderedBody renderGroup(String group, Map<String, Object> sections) {
+        if (!prerenderEnabled) return null;
+        try {
+            return renderer.render(buildGroupResponse(group, sections));
+        } catch (Exception e) {
+            log.warn("⚠️ Could not pre-render group {}: {}", group, e.getMessage());
+            return null;
+        }
+    }
+
+    //    COLD PATH: NO SNAPSHOT YET -> SECTION CACHE, THEN SEED SNAPSHOT
+    //    Chờ tối đa request deadline; section chưa xong -> placeholder rỗng (pending), vẫn chạy nền
+    private HomepageGroupResponse loadGroupWithinDeadline(String group) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(requestDeadlineMs));
+        Map<String, CompletableFuture<Object>> futures = groupLoad(group);
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                    .get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Xử lý từng section bên dưới
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, Object> sections = new LinkedHashMap<>();
+        List<String> pending = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        futures.forEach((key, future) -> {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                sections.put(key, future.join());
+                return;
+            }
+            (future.isDone() ? failed : pending).add(key);
+            sections.put(key, placeholder(key));
+        });
+        if (failed.size() == futures.size()) {
+            throw new IllegalStateException("Every section of group " + group + " failed");
+        }
+
+        HomepageGroupResponse response = buildGroupResponse(group, sections);
+        if (!pending.isEmpty() || !failed.isEmpty()) {
+            log.warn("⏳ Group {} returned partially after {}ms (pending: {}, failed: {})", group, requestDeadlineMs, pending, failed);
+            response.setPendingSections(pending.isEmpty() ? null : pending);
+            response.setFailedSections(failed.isEmpty() ? null : failed);
+        }
+        return response;
+    }
+
+    //    ONE BACKGROUND LOAD PER GROUP, RE-POLLS JOIN IT
+    private Map<String, CompletableFuture<Object>> groupLoad(String group) {
+        synchronized (pendingLoads) {
+            Map<String, CompletableFuture<Object>> inFlight = pendingLoads.get(group);
+            if (inFlight != null && inFlight.values().stream().anyMatch(future -> !future.isDone())) {
+                return inFlight;
+            }
+            Map<String, CompletableFuture<Object>> futures = startGroupLoad(group);
+            pendingLoads.put(group, futures);
+            return futures;
+        }
+    }
+
+    //    COLD PATH: NO SNAPSHOT YET -> SECTION CACHE (bounded by compute timeout), THEN SEED SNAPSHOT
+    private Map<String, CompletableFuture<Object>> startGroupLoad(String group) {
+        log.info("📭 No snapshot for group {}, loading sections in background", group);
+        List<String> sectionKeys = HomepageSnapshotStore.GROUP_SECTIONS.get(group);
+        if (sectionKeys == null) {
+            throw new IllegalArgumentException("Invalid group: " + group);
+        }
+        long startTime = System.currentTimeMillis();
+        Deadline computeDeadline = Deadline.after(Duration.ofSeconds(computeTimeoutSeconds));
+        Map<String, CompletableFuture<Object>> futures = computeDeadline
+                .wrap(() -> sectionGraph.start(sectionKeys, this::timedFetch, homepageExecutor))
+                .get();
+
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            synchronized (pendingLoads) {
+                pendingLoads.remove(group, futures);
+            }
+            if (error != null) {
+                log.warn("⚠️ Background load of group {} failed: {}", group, error.getMessage());
+                return;
+            }
+            Map<String, Object> sections = new LinkedHashMap<>();
+            futures.forEach((key, future) -> sections.put(key, future.join()));
+            diskSnapshot.save(sections);
+            try {
+                snapshotStore.publishIfAbsent(group, sections, renderGroup(group, sections), System.currentTimeMillis() - startTime);
+            } catch (Exception e) {
+                log.warn("⚠️ Could not seed snapshot for group {}: {}", group, e.getMessage());
+            }
+        });
+        return futures;
+    }
+
+    private static Object placeholder(String sectionKey) {
+        if ("section2".equals(sectionKey)) {
+            return new HomepageResponse.Section2Data(List.of(), List.of(), List.of());
+        }
+        return List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    public HomepageGroupResponse buildGroupResponse(String group, Map<String, Object> sections) {
+        HomepageGroupResponse.HomepageGroupResponseBuilder builder = HomepageGroupResponse
+                .builder()
+                .message("Success")
+                .cachedAt(System.currentTimeMillis())
+                .group(group);
+
+        switch (group) {
+            case "initial":
+                builder.section1((List<MovieItemDTO>) sections.get("section1"))
+                        .section2((HomepageResponse.Section2Data) sections.get("section2"))
+                        .section3((List<MovieItemDTO>) sections.get("section3"))
+                        .section4((List<MovieItemDTO>) sections.get("section4"))
+                        .hasMore(true)
+                        .nextGroup("group1")
+                        .seoOnPage(new SeoOnPage());
+                break;
+            case "group1":
+                builder.section5((List<MovieItemDTO>) sections.get("section5"))
+                        .section6((List<MovieItemDTO>) sections.get("section6"))
+                        .section7((List<MovieItemDTO>) sections.get("section7"))
+                        .section8((List<MovieItemDTO>) sections.get("section8"))
+                        .hasMore(true)
+                        .nextGroup("group2");
+                break;
+            case "group2":
+                builder.section9((List<MovieItemDTO>) sections.get("section9"))
+                        .section10((List<MovieItemDTO>) sections.get("section10"))
+                        .section11((List<MovieItemDTO>) sections.get("section11"))
+                        .section12((List<MovieItemDTO>) sections.get("section12"))
+                        .hasMore(false)
+                        .nextGroup(null);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid group: " + group);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
     public HomepageResponse getHomepageData() {
         log.info("🔄 Fetching FULL homepage data (12 sections) from Ophim API...");
         long startTime = System.currentTimeMillis();
 
         try {
-            OphimHomepageResponse rawData = cachedSectionService.fetchHomepageRaw();
-            List<MovieItemDTO> section1 = cachedSectionService.fetchSection1();
-            HomepageResponse.Section2Data section2 = cachedSectionService.fetchSection2();
-            List<MovieItemDTO> section3 = cachedSectionService.fetchSection3();   // Series
-            List<MovieItemDTO> section4 = cachedSectionService.fetchSection4();   // Action
-            List<MovieItemDTO> section5 = cachedSectionService.fetchSection5();   // Single
-            List<MovieItemDTO> section6 = cachedSectionService.fetchSection6();   // New Movie
-            List<MovieItemDTO> section7 = cachedSectionService.fetchSection7();   // Horror
-            List<MovieItemDTO> section8 = cachedSectionService.fetchSection8();   // Korea Love
-            List<MovieItemDTO> section9 = cachedSectionService.fetchSection9();   // Cartoon - CÓ content
-            List<MovieItemDTO> section10 = cachedSectionService.fetchSection10(); // Crime
-            List<MovieItemDTO> section11 = cachedSectionService.fetchSection11(); // Secret
-            List<MovieItemDTO> section12 = cachedSectionService.fetchSection12(); // Adventure
-
+            SectionGraph.Result<Object> result = fetchSectionsParallel(SectionGraph.allSections());
+            Map<String, Object> sections = result.values();
+            if (sections.isEmpty()) {
+                throw new IllegalStateException("Every section failed: " + result.failures().keySet());
+            }
+            diskSnapshot.save(sections);
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("✅ Homepage built in {}ms ({}s)", duration, duration / 1000);
+            if (!result.failures().isEmpty()) {
+                // Section lỗi để null, các section khác vẫn trả về (và đã vào cache)
+                log.warn("⚠️ Homepage built in {}ms without {} sections: {}", duration, result.failures().size(), result.failures().keySet());
+            } else {
+                log.info("✅ Homepage built in {}ms ({}s)", duration, duration / 1000);
+            }
 
             return HomepageResponse.builder()
                     .seoOnPage(new SeoOnPage())
                     .message("Success")
                     .cachedAt(System.currentTimeMillis())
-                    .rawData(rawData)
-                    .section1(section1)
-                    .section2(section2)
-                    .section3(section3)
-                    .section4(section4)
-                    .section5(section5)
-                    .section6(section6)
-                    .section7(section7)
-                    .section8(section8)
-                    .section9(section9)
-                    .section10(section10)
-                    .section11(section11)
-                    .section12(section12)
+                    .rawData((OphimHomepageResponse) sections.get("raw"))
+                    .section1((List<MovieItemDTO>) sections.get("section1"))
+                    .section2((HomepageResponse.Section2Data) sections.get("section2"))
+                    .section3((List<MovieItemDTO>) sections.get("section3"))
+                    .section4((List<MovieItemDTO>) sections.get("section4"))
+                    .section5((List<MovieItemDTO>) sections.get("section5"))
+                    .section6((List<MovieItemDTO>) sections.get("section6"))
+                    .section7((List<MovieItemDTO>) sections.get("section7"))
+                    .section8((List<MovieItemDTO>) sections.get("section8"))
+                    .section9((List<MovieItemDTO>) sections.get("section9"))
+                    .section10((List<MovieItemDTO>) sections.get("section10"))
+                    .section11((List<MovieItemDTO>) sections.get("section11"))
+                    .section12((List<MovieItemDTO>) sections.get("section12"))
                     .build();
         } catch (Exception e) {
-            log.error("");
+            log.error("❌ Failed to fetch homepage data: {}", e.getMessage());
             throw new RuntimeException("Failed to fetch homepage data", e);
         }
     }
+
+    // ===================================
+    // FAN OUT SECTION FETCHES (latency = slowest section)
+    // ===================================
+    //    DAG: raw trước section1/section6, các section khác chạy song song ngay
+    private SectionGraph.Result<Object> fetchSectionsParallel(List<String> sectionKeys) {
+        return sectionGraph.run(sectionKeys, this::timedFetch, homepageExecutor);
+    }
+
+    private Object timedFetch(String sectionKey) {
+        long startTime = System.nanoTime();
+        try {
+            return sectionFetchers.get(sectionKey).get();
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            Timer.builder("homepage.section.fetch")
+                    .tag("section", sectionKey)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            log.debug("⏱️ {} loaded in {}ms", sectionKey, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
 }
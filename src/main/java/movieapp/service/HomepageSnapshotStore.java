@@ -0,0 +1,434 @@
+package movieapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheEntry;
+import movieapp.cache.NearCacheInvalidator;
+import movieapp.service.HomepageRenderer.RenderedBody;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class HomepageSnapshotStore {
+    public static final Map<String, List<String>> GROUP_SECTIONS = Map.of(
+            "initial", List.of("section1", "section2", "section3", "section4"),
+            "group1", List.of("section5", "section6", "section7", "section8"),
+            "group2", List.of("section9", "section10", "section11", "section12"));
+
+    private static final String CACHE_NAME = "homepage-snapshot";
+    // Namespace riêng: clear cache "homepage" (SCAN homepage::*) không đụng snapshot / fence / version seq
+    private static final String KEY_PREFIX = CACHE_NAME + "::";
+    private static final String VERSION_SEQ_KEY = KEY_PREFIX + "version::seq";
+
+    // KEYS[1]=pointer, KEYS[2]=fence | ARGV[1]=fencing token, ARGV[2]=version (serialized)
+    private static final RedisScript<Long> FENCED_FLIP = new DefaultRedisScript<>("""
+            local last = tonumber(redis.call('GET', KEYS[2]) or '0')
+            if tonumber(ARGV[1]) < last then return 0 end
+            redis.call('SET', KEYS[2], ARGV[1])
+            redis.call('SET', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, byte[]> byteRedisTemplate;
+    private final NearCacheInvalidator invalidator;
+    private final MovieRecordStore movieRecordStore;
+    private final ExecutorService refreshExecutor;
+    private final Cache<String, GroupSnapshot> localSnapshots;
+    private final Cache<String, RenderedBody> localBodies;
+
+    @Value("${app.cache.hard-ttl-minutes:360}")
+    private long hardTtlMinutes;
+
+    @Value("${app.cache.snapshot.keep-versions:2}")
+    private int keepVersions;
+
+    // meta: createdAt = lúc publish/gia hạn, computeMillis = thời gian build group (cho XFetch)
+    public record GroupSnapshot(long version, Map<String, Object> sections, CacheEntry meta) {
+    }
+
+    public HomepageSnapshotStore(RedisTemplate<String, Object> redisTemplate,
+                                 @Qualifier("byteRedisTemplate") RedisTemplate<String, byte[]> byteRedisTemplate,
+                                 NearCacheInvalidator invalidator, MovieRecordStore movieRecordStore,
+                                 @Qualifier("cacheRefreshExecutor") ExecutorService refreshExecutor,
+                                 @Value("${app.cache.near.ttl-minutes:60}") long nearCacheTtlMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.byteRedisTemplate = byteRedisTemplate;
+        this.invalidator = invalidator;
+        this.movieRecordStore = movieRecordStore;
+        this.refreshExecutor = refreshExecutor;
+        this.localSnapshots = Caffeine.newBuilder()
+                .maximumSize(GROUP_SECTIONS.size() * 2L)
+                .expireAfterWrite(Duration.ofMinutes(nearCacheTtlMinutes))
+                .build();
+        this.localBodies = Caffeine.newBuilder()
+                .maximumSize(GROUP_SECTIONS.size() * 2L)
+                .expireAfterWrite(Duration.ofMinutes(nearCacheTtlMinutes))
+                .build();
+
+        invalidator.register(CACHE_NAME, this::invalidateLocal);
+    }
+
+    // ===================================
+    // READ: one pointer lookup + one MGET
+    // ===================================
+    public Optional<GroupSnapshot> readGroup(String group) {
+        GroupSnapshot local = localSnapshots.getIfPresent(group);
+        if (local != null) return Optional.of(local);
+
+        Long version = currentVersion(group);
+        if (version == null) return Optional.empty();
+
+        GroupSnapshot snapshot = readVersion(group, version);
+        if (snapshot == null) {
+            log.warn("⚠️ Snapshot v{} of group {} is incomplete, ignoring", version, group);
+            return Optional.empty();
+        }
+
+        localSnapshots.put(group, snapshot);
+        return Optional.of(snapshot);
+    }
+
+    //    READ PRE-RENDERED BODY OF CURRENT VERSION (one pointer lookup + one HGETALL)
+    public Optional<RenderedBody> readRenderedBody(String group) {
+        RenderedBody local = localBodies.getIfPresent(group);
+        if (local != null) return Optional.of(local);
+
+        Long version = currentVersion(group);
+        if (version == null) return Optional.empty();
+
+        Map<String, byte[]> fields = byteRedisTemplate.<String, byte[]>opsForHash().entries(bodyKey(version));
+        byte[] etag = fields.get("etag");
+        byte[] identity = fields.get("identity");
+        byte[] gzip = fields.get("gzip");
+        if (etag == null || identity == null || gzip == null) return Optional.empty();
+
+        RenderedBody body = new RenderedBody(new String(etag, StandardCharsets.UTF_8), identity, gzip);
+        localBodies.put(group, body);
+        return Optional.of(body);
+    }
+
+    // ===================================
+    // WRITE: immutable version, then flip pointer
+    // ===================================
+    public long publish(String group, Map<String, Object> sections, RenderedBody body, long buildMillis) {
+        long version = writeVersion(group, sections, body, buildMillis);
+
+        Object previous = redisTemplate.opsForValue().getAndSet(pointerKey(group), version);
+        onPointerChanged(group);
+        log.info("📸 Published snapshot {} v{} (previous: v{})", group, version, previous);
+
+        scheduleGarbageCollection(group);
+        return version;
+    }
+
+    //    FENCED WRITE: only flips the pointer if no newer lease holder already did
+    public long publish(String group, Map<String, Object> sections, RenderedBody body, long buildMillis, long fencingToken) {
+        long version = writeVersion(group, sections, body, buildMillis);
+
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Long accepted = redisTemplate.execute(FENCED_FLIP, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+                List.of(pointerKey(group), fenceKey(group)),
+                String.valueOf(fencingToken).getBytes(StandardCharsets.UTF_8), valueSerializer.serialize(version));
+
+        if (accepted == null || accepted == 0) {
+            deleteVersion(group, version);
+            throw new IllegalStateException("Snapshot " + group + " rejected: fencing token " + fencingToken + " is stale");
+        }
+
+        onPointerChanged(group);
+        log.info("📸 Published snapshot {} v{} (fence {})", group, version, fencingToken);
+
+        scheduleGarbageCollection(group);
+        return version;
+    }
+
+    //    SEED SNAPSHOT FROM COLD READ (never overwrites a published one)
+    public void publishIfAbsent(String group, Map<String, Object> sections, RenderedBody body, long buildMillis) {
+        long version = writeVersion(group, sections, body, buildMillis);
+
+        Boolean flipped = redisTemplate.opsForValue().setIfAbsent(pointerKey(group), version);
+        if (Boolean.TRUE.equals(flipped)) {
+            onPointerChanged(group);
+            log.info("📸 Seeded snapshot {} v{}", group, version);
+        } else {
+            deleteVersion(group, version);
+        }
+    }
+
+    //    NOTHING CHANGED UPSTREAM: keep current version alive, reset its age (one pipeline)
+    public void touch(String group) {
+        Long version = currentVersion(group);
+        if (version == null) return;
+
+        CacheEntry previous = redisTemplate.opsForValue().get(metaKey(version)) instanceof CacheEntry entry ? entry : null;
+        CacheEntry meta = new CacheEntry(version, System.currentTimeMillis(), previous != null ? previous.getComputeMillis() : 0L);
+
+        List<String> keys = new ArrayList<>();
+        sectionsOf(group).forEach(section -> keys.add(versionKey(version, section)));
+        keys.add(bodyKey(version));
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        long ttlSeconds = TimeUnit.MINUTES.toSeconds(hardTtlMinutes);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            keys.forEach(key -> connection.keyCommands().expire(raw(key), ttlSeconds));
+            connection.stringCommands().set(raw(metaKey(version)), valueSerializer.serialize(meta),
+                    Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.upsert());
+            return null;
+        });
+        onPointerChanged(group);
+        log.debug("⏳ Extended snapshot {} v{}", group, version);
+    }
+
+    // ===================================
+    // ROLLBACK: flip pointer back to the previous version
+    // ===================================
+    public long rollback(String group) {
+        Long current = currentVersion(group);
+        if (current == null) {
+            throw new IllegalStateException("No snapshot published for group: " + group);
+        }
+
+        Set<Object> versions = redisTemplate.opsForZSet().reverseRange(versionsKey(group), 0, -1);
+        if (versions != null) {
+            for (Object candidate : versions) {
+                long version = Long.parseLong(String.valueOf(candidate));
+                if (version < current && readVersion(group, version) != null) {
+                    redisTemplate.opsForValue().set(pointerKey(group), version);
+                    onPointerChanged(group);
+                    log.warn("↩️ Rolled back snapshot {} v{} → v{}", group, current, version);
+                    return version;
+                }
+            }
+        }
+        throw new IllegalStateException("No previous snapshot available for group: " + group);
+    }
+
+    //    DROP POINTER (next read falls back to section cache)
+    public void evictGroup(String group) {
+        redisTemplate.delete(pointerKey(group));
+        onPointerChanged(group);
+    }
+
+    public void evictGroupOfSection(String sectionKey) {
+        GROUP_SECTIONS.forEach((group, sections) -> {
+            if (sections.contains(sectionKey)) evictGroup(group);
+        });
+    }
+
+    //    DROP EVERY GROUP: pointers + versions; version seq and fences are kept so fencing stays monotonic
+    public void clearAll() {
+        List<String> keys = new ArrayList<>();
+        for (String group : GROUP_SECTIONS.keySet()) {
+            keys.add(pointerKey(group));
+            keys.add(versionsKey(group));
+            Set<Object> versions = redisTemplate.opsForZSet().range(versionsKey(group), 0, -1);
+            if (versions == null) continue;
+            for (Object member : versions) {
+                long version = Long.parseLong(String.valueOf(member));
+                sectionsOf(group).forEach(section -> keys.add(versionKey(version, section)));
+                keys.add(bodyKey(version));
+                keys.add(metaKey(version));
+            }
+        }
+        redisTemplate.delete(keys);
+        evictAllLocal();
+        log.info("🗑️ Cleared snapshots of {} groups ({} keys)", GROUP_SECTIONS.size(), keys.size());
+    }
+
+    public void evictAllLocal() {
+        localSnapshots.invalidateAll();
+        localBodies.invalidateAll();
+        invalidator.publishClear(CACHE_NAME);
+    }
+
+    // ===================================
+    // GARBAGE COLLECT OLD VERSIONS (background)
+    // ===================================
+    //    GC chạy nền; executor đầy thì bỏ qua, lần publish sau dọn tiếp
+    private void scheduleGarbageCollection(String group) {
+        try {
+            refreshExecutor.execute(() -> collectGarbage(group));
+        } catch (RejectedExecutionException e) {
+            log.debug("Refresh executor busy, skipped snapshot GC of {}", group);
+        }
+    }
+
+    void collectGarbage(String group) {
+        try {
+            Set<Object> stale = redisTemplate.opsForZSet().range(versionsKey(group), 0, -(keepVersions + 1L));
+            if (stale == null || stale.isEmpty()) return;
+
+            Long current = currentVersion(group);
+            List<Long> versions = new ArrayList<>();
+            for (Object member : stale) {
+                long version = Long.parseLong(String.valueOf(member));
+                if (current != null && version == current) continue;
+                versions.add(version);
+            }
+            deleteVersions(group, versions);
+            log.debug("🗑️ Snapshot GC for {} removed {} old versions", group, versions.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Snapshot GC for {} failed: {}", group, e.getMessage());
+        }
+    }
+
+    // ===================================
+    // HELPERS
+    // ===================================
+    private long writeVersion(String group, Map<String, Object> sections, RenderedBody body, long buildMillis) {
+        Long version = redisTemplate.opsForValue().increment(VERSION_SEQ_KEY);
+        if (version == null) {
+            throw new IllegalStateException("Could not allocate snapshot version");
+        }
+
+        for (String section : sectionsOf(group)) {
+            if (sections.get(section) == null) {
+                throw new IllegalArgumentException("Snapshot " + group + " is missing " + section);
+            }
+        }
+
+        // Movie records theo slug trước, sau đó sections (chỉ còn ref) + body + version index: 1 round trip
+        Map<String, Object> normalized = movieRecordStore.normalizeAll(new LinkedHashMap<>(sections));
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration ttl = Expiration.from(hardTtlMinutes, TimeUnit.MINUTES);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String section : sectionsOf(group)) {
+                connection.stringCommands().set(raw(versionKey(version, section)), valueSerializer.serialize(normalized.get(section)),
+                        ttl, RedisStringCommands.SetOption.upsert());
+            }
+            if (body != null) {
+                Map<byte[], byte[]> fields = new LinkedHashMap<>();
+                fields.put(raw("etag"), body.etag().getBytes(StandardCharsets.UTF_8));
+                fields.put(raw("identity"), body.identity());
+                fields.put(raw("gzip"), body.gzip());
+                connection.hashCommands().hMSet(raw(bodyKey(version)), fields);
+                connection.keyCommands().expire(raw(bodyKey(version)), TimeUnit.MINUTES.toSeconds(hardTtlMinutes));
+            }
+            connection.stringCommands().set(raw(metaKey(version)),
+                    valueSerializer.serialize(new CacheEntry(version, System.currentTimeMillis(), buildMillis)),
+                    ttl, RedisStringCommands.SetOption.upsert());
+            connection.zSetCommands().zAdd(raw(versionsKey(group)), version, valueSerializer.serialize(String.valueOf(version)));
+            return null;
+        });
+        return version;
+    }
+
+    private GroupSnapshot readVersion(String group, long version) {
+        List<String> sections = sectionsOf(group);
+        List<String> keys = new ArrayList<>(sections.stream().map(s -> versionKey(version, s)).toList());
+        keys.add(metaKey(version));
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null || values.subList(0, sections.size()).contains(null)) return null;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < sections.size(); i++) {
+            result.put(sections.get(i), values.get(i));
+        }
+        Map<String, Object> hydrated = movieRecordStore.hydrateAll(result);
+        if (hydrated == null) return null;
+
+        // Version cũ chưa có meta -> coi như đã hết hạn (XFetch sẽ refresh)
+        CacheEntry meta = values.get(sections.size()) instanceof CacheEntry entry ? entry : CacheEntry.legacy(version);
+        return new GroupSnapshot(version, hydrated, meta);
+    }
+
+    private void deleteVersion(String group, long version) {
+        deleteVersions(group, List.of(version));
+    }
+
+    //    ONE MULTI-KEY DEL + ONE ZREM, WHATEVER THE NUMBER OF VERSIONS
+    private void deleteVersions(String group, List<Long> versions) {
+        if (versions.isEmpty()) return;
+        List<String> keys = new ArrayList<>();
+        for (long version : versions) {
+            sectionsOf(group).forEach(section -> keys.add(versionKey(version, section)));
+            keys.add(bodyKey(version));
+            keys.add(metaKey(version));
+        }
+        redisTemplate.delete(keys);
+        redisTemplate.opsForZSet().remove(versionsKey(group), versions.stream().map(String::valueOf).toArray());
+    }
+
+    private Long currentVersion(String group) {
+        Object pointer = redisTemplate.opsForValue().get(pointerKey(group));
+        return pointer instanceof Number number ? number.longValue() : null;
+    }
+
+    private void onPointerChanged(String group) {
+        localSnapshots.invalidate(group);
+        localBodies.invalidate(group);
+        invalidator.publishEvict(CACHE_NAME, group);
+    }
+
+    private void invalidateLocal(String group) {
+        if (NearCacheInvalidator.ALL_KEYS.equals(group)) {
+            localSnapshots.invalidateAll();
+            localBodies.invalidateAll();
+        } else {
+            localSnapshots.invalidate(group);
+            localBodies.invalidate(group);
+        }
+    }
+
+    private static List<String> sectionsOf(String group) {
+        List<String> sections = GROUP_SECTIONS.get(group);
+        if (sections == null) {
+            throw new IllegalArgumentException("Invalid group: " + group);
+        }
+        return sections;
+    }
+
+    private static byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String pointerKey(String group) {
+        return KEY_PREFIX + "current::" + group;
+    }
+
+    private static String fenceKey(String group) {
+        return KEY_PREFIX + "fence::" + group;
+    }
+
+    private static String versionsKey(String group) {
+        return KEY_PREFIX + "versions::" + group;
+    }
+
+    private static String versionKey(long version, String section) {
+        return KEY_PREFIX + "v" + version + "::" + section;
+    }
+
+    private static String metaKey(long version) {
+        return KEY_PREFIX + "v" + version + "::meta";
+    }
+
+    private static String bodyKey(long version) {
+        return KEY_PREFIX + "v" + version + "::body";
+    }
+}
@@ -0,0 +1,270 @@
+package movieapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import movieapp.cache.CacheValueNormalizer;
+import movieapp.dto.CustomFieldsResponse.MovieItemDTO;
+import movieapp.dto.HomepageReponse.HomepageResponse;
+import movieapp.dto.MetaAndHead.Params;
+import movieapp.dto.MetaAndHead.SeoOnPage;
+import movieapp.dto.OphimResponse.OphimHomepageResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Mỗi movie lưu 1 lần theo slug (movie::record::{slug}), section chỉ giữ danh sách slug theo thứ tự
+@Service
+@Slf4j
+public class MovieRecordStore implements CacheValueNormalizer {
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.cache.movie-record.ttl-hours:24}")
+    private long ttlHours;
+
+    // List<MovieItemDTO>: thumb/poster tối ưu là của từng section nên giữ trong ref
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MovieListRef {
+        private List<String> slugs;
+        private List<String> optimizedThumbs;
+        private List<String> optimizedPosters;
+        private boolean withContent;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Section2Ref {
+        private MovieListRef korea;
+        private MovieListRef china;
+        private MovieListRef usAndUk;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HomepageRawRef {
+        private String status;
+        private String message;
+        private SeoOnPage seoOnPage;
+        private Params params;
+        private List<String> slugs;
+    }
+
+    public MovieRecordStore(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // ===================================
+    // WRITE: shared records (one pipeline), refs returned in place of values
+    // ===================================
+    @Override
+    public Map<String, Object> normalizeAll(Map<String, Object> values) {
+        Map<String, OphimMovieItem> records = new LinkedHashMap<>();
+        Map<String, String> contents = new LinkedHashMap<>();
+
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        values.forEach((key, value) -> normalized.put(key, toRef(value, records, contents)));
+
+        if (!records.isEmpty()) {
+            writeRecords(records, contents);
+        }
+        return normalized;
+    }
+
+    // ===================================
+    // READ: one MGET for every record referenced by the given values
+    // ===================================
+    @Override
+    public Map<String, Object> hydrateAll(Map<String, Object> stored) {
+        Set<String> keys = new LinkedHashSet<>();
+        stored.values().forEach(value -> collectKeys(value, keys));
+        if (keys.isEmpty()) return stored;
+
+        List<String> keyList = new ArrayList<>(keys);
+        List<Object> loaded = redisTemplate.opsForValue().multiGet(keyList);
+        if (loaded == null) return null;
+
+        Map<String, Object> found = new HashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            if (loaded.get(i) != null) found.put(keyList.get(i), loaded.get(i));
+        }
+
+        Map<String, Object> hydrated = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : stored.entrySet()) {
+            Object value = fromRef(entry.getValue(), found);
+            if (value == null) {
+                log.debug("📭 Movie records of {} expired, treating as miss", entry.getKey());
+                return null;
+            }
+            hydrated.put(entry.getKey(), value);
+        }
+        return hydrated;
+    }
+
+    // ===================================
+    // HELPERS: VALUE -> REF
+    // ===================================
+    private Object toRef(Object value, Map<String, OphimMovieItem> records, Map<String, String> contents) {
+        if (value instanceof List<?> list) {
+            MovieListRef ref = toListRef(list, records, contents);
+            return ref != null ? ref : value;
+        }
+        if (value instanceof HomepageResponse.Section2Data section2) {
+            MovieListRef korea = toListRef(section2.getListKorea(), records, contents);
+            MovieListRef china = toListRef(section2.getListChina(), records, contents);
+            MovieListRef usAndUk = toListRef(section2.getListUSAndUK(), records, contents);
+            return korea != null && china != null && usAndUk != null ? new Section2Ref(korea, china, usAndUk) : value;
+        }
+        if (value instanceof OphimHomepageResponse raw && raw.getData() != null && hasSlugs(raw.getData().getItems())) {
+            List<String> slugs = new ArrayList<>();
+            for (OphimMovieItem item : raw.getData().getItems()) {
+                records.put(item.getSlug(), baseRecord(item));
+                slugs.add(item.getSlug());
+            }
+            return new HomepageRawRef(raw.getStatus(), raw.getMessage(), raw.getData().getSeoOnPage(), raw.getData().getParams(), slugs);
+        }
+        return value;
+    }
+
+    private MovieListRef toListRef(List<?> list, Map<String, OphimMovieItem> records, Map<String, String> contents) {
+        if (list == null || list.isEmpty()) return null;
+        for (Object item : list) {
+            if (!(item instanceof MovieItemDTO dto) || dto.getSlug() == null) return null;
+        }
+
+        MovieListRef ref = new MovieListRef(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), false);
+        for (Object item : list) {
+            MovieItemDTO dto = (MovieItemDTO) item;
+            records.put(dto.getSlug(), baseRecord(dto));
+            if (dto.getContent() != null) {
+                contents.put(dto.getSlug(), dto.getContent());
+                ref.setWithContent(true);
+            }
+            ref.getSlugs().add(dto.getSlug());
+            ref.getOptimizedThumbs().add(dto.getOptimizedThumb());
+            ref.getOptimizedPosters().add(dto.getOptimizedPoster());
+        }
+        return ref;
+    }
+
+    private static boolean hasSlugs(List<OphimMovieItem> items) {
+        return items != null && !items.isEmpty() && items.stream().allMatch(item -> item.getSlug() != null);
+    }
+
+    //    ONLY OPHIM FIELDS (no per-section decoration)
+    private static OphimMovieItem baseRecord(OphimMovieItem item) {
+        OphimMovieItem record = new OphimMovieItem();
+        BeanUtils.copyProperties(item, record);
+        return record;
+    }
+
+    private void writeRecords(Map<String, OphimMovieItem> records, Map<String, String> contents) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration ttl = Expiration.from(ttlHours, TimeUnit.HOURS);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            records.forEach((slug, record) -> connection.stringCommands().set(raw(recordKey(slug)),
+                    valueSerializer.serialize(record), ttl, RedisStringCommands.SetOption.upsert()));
+            contents.forEach((slug, content) -> connection.stringCommands().set(raw(contentKey(slug)),
+                    valueSerializer.serialize(content), ttl, RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+        log.debug("🎞️ Stored {} movie records ({} with content)", records.size(), contents.size());
+    }
+
+    // ===================================
+    // HELPERS: REF -> VALUE
+    // ===================================
+    private static void collectKeys(Object value, Set<String> keys) {
+        if (value instanceof MovieListRef ref) {
+            ref.getSlugs().forEach(slug -> keys.add(recordKey(slug)));
+            if (ref.isWithContent()) ref.getSlugs().forEach(slug -> keys.add(contentKey(slug)));
+        } else if (value instanceof Section2Ref ref) {
+            collectKeys(ref.getKorea(), keys);
+            collectKeys(ref.getChina(), keys);
+            collectKeys(ref.getUsAndUk(), keys);
+        } else if (value instanceof HomepageRawRef ref) {
+            ref.getSlugs().forEach(slug -> keys.add(recordKey(slug)));
+        }
+    }
+
+    private static Object fromRef(Object value, Map<String, Object> found) {
+        if (value instanceof MovieListRef ref) {
+            return fromListRef(ref, found);
+        }
+        if (value instanceof Section2Ref ref) {
+            List<MovieItemDTO> korea = fromListRef(ref.getKorea(), found);
+            List<MovieItemDTO> china = fromListRef(ref.getChina(), found);
+            List<MovieItemDTO> usAndUk = fromListRef(ref.getUsAndUk(), found);
+            if (korea == null || china == null || usAndUk == null) return null;
+            return HomepageResponse.Section2Data.builder().ListKorea(korea).ListChina(china).ListUSAndUK(usAndUk).build();
+        }
+        if (value instanceof HomepageRawRef ref) {
+            List<OphimMovieItem> items = new ArrayList<>();
+            for (String slug : ref.getSlugs()) {
+                if (!(found.get(recordKey(slug)) instanceof OphimMovieItem record)) return null;
+                items.add(baseRecord(record));
+            }
+            OphimHomepageResponse.HomepageData data = new OphimHomepageResponse.HomepageData();
+            data.setSeoOnPage(ref.getSeoOnPage());
+            data.setParams(ref.getParams());
+            data.setItems(items);
+
+            OphimHomepageResponse raw = new OphimHomepageResponse();
+            raw.setStatus(ref.getStatus());
+            raw.setMessage(ref.getMessage());
+            raw.setData(data);
+            return raw;
+        }
+        return value;
+    }
+
+    private static List<MovieItemDTO> fromListRef(MovieListRef ref, Map<String, Object> found) {
+        List<MovieItemDTO> items = new ArrayList<>(ref.getSlugs().size());
+        for (int i = 0; i < ref.getSlugs().size(); i++) {
+            String slug = ref.getSlugs().get(i);
+            if (!(found.get(recordKey(slug)) instanceof OphimMovieItem record)) return null;
+
+            MovieItemDTO dto = new MovieItemDTO();
+            BeanUtils.copyProperties(record, dto);
+            dto.setOptimizedThumb(ref.getOptimizedThumbs().get(i));
+            dto.setOptimizedPoster(ref.getOptimizedPosters().get(i));
+            dto.setContent(ref.isWithContent() ? (String) found.get(contentKey(slug)) : null);
+            items.add(dto);
+        }
+        return items;
+    }
+
+    private static byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String recordKey(String slug) {
+        return "movie::record::" + slug;
+    }
+
+    private static String contentKey(String slug) {
+        return "movie::record::" + slug + "::content";
+    }
+}
@@ -0,0 +1,98 @@
+package movieapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lần cuối mỗi section được xác nhận mới (build hoặc upstream không đổi) + lỗi gần nhất, dùng chung mọi instance
+@Service
+@Slf4j
+public class SectionFreshnessTracker {
+    private static final String KEY = "homepage::freshness";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SectionFreshness {
+        private long lastSuccessAt;
+        private long lastAttemptAt;
+        private int consecutiveFailures;
+        private String lastError;
+    }
+
+    public SectionFreshnessTracker(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // ===================================
+    // RECORD ONE REFRESH (one HMGET + one HMSET)
+    // ===================================
+    public void record(Collection<String> succeeded, Map<String, String> failed) {
+        if (succeeded.isEmpty() && failed.isEmpty()) return;
+        long now = System.currentTimeMillis();
+
+        try {
+            List<Object> failedKeys = new ArrayList<>(failed.keySet());
+            List<Object> previous = failedKeys.isEmpty() ? List.of() : redisTemplate.opsForHash().multiGet(KEY, failedKeys);
+
+            Map<String, SectionFreshness> updates = new LinkedHashMap<>();
+            succeeded.forEach(section -> updates.put(section, new SectionFreshness(now, now, 0, null)));
+            for (int i = 0; i < failedKeys.size(); i++) {
+                String section = (String) failedKeys.get(i);
+                SectionFreshness last = previous.get(i) instanceof SectionFreshness freshness ? freshness : new SectionFreshness();
+                updates.put(section, new SectionFreshness(last.getLastSuccessAt(), now,
+                        last.getConsecutiveFailures() + 1, failed.get(section)));
+            }
+            redisTemplate.opsForHash().putAll(KEY, updates);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not record section freshness: {}", e.getMessage());
+        }
+
+        failed.keySet().forEach(section -> Counter.builder("cache.refresh.section.failures")
+                .description("Sections that kept their last good value after all retries failed")
+                .tag("section", section)
+                .register(meterRegistry)
+                .increment());
+    }
+
+    // ===================================
+    // READ: per section age + failure streak
+    // ===================================
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<Object, Object> stored = redisTemplate.opsForHash().entries(KEY);
+        long now = System.currentTimeMillis();
+
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String section : SectionGraph.allSections()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            if (stored.get(section) instanceof SectionFreshness freshness) {
+                info.put("last_success_at", freshness.getLastSuccessAt());
+                info.put("age_seconds", freshness.getLastSuccessAt() > 0 ? (now - freshness.getLastSuccessAt()) / 1000 : null);
+                info.put("last_attempt_at", freshness.getLastAttemptAt());
+                info.put("consecutive_failures", freshness.getConsecutiveFailures());
+                info.put("last_error", freshness.getLastError());
+                info.put("stale", freshness.getConsecutiveFailures() > 0);
+            } else {
+                info.put("age_seconds", null);
+                info.put("stale", null);
+            }
+            result.put(section, info);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+package movieapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import movieapp.util.Deadline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Section homepage = node trong DAG, cạnh = "build từ dữ liệu của"
+// Node chạy ngay khi các node phụ thuộc xong -> thời gian warm-up = chuỗi dài nhất, không phải tổng
+@Component
+@Slf4j
+public class SectionGraph {
+    private static final Map<String, List<String>> DEPENDENCIES = new LinkedHashMap<>();
+
+    static {
+        DEPENDENCIES.put("raw", List.of());
+        DEPENDENCIES.put("section1", List.of("raw"));   // 7 item đầu của /home
+        DEPENDENCIES.put("section2", List.of());
+        DEPENDENCIES.put("section3", List.of());
+        DEPENDENCIES.put("section4", List.of());
+        DEPENDENCIES.put("section5", List.of());
+        DEPENDENCIES.put("section6", List.of("raw"));   // item 8-21 của /home
+        DEPENDENCIES.put("section7", List.of());
+        DEPENDENCIES.put("section8", List.of());
+        DEPENDENCIES.put("section9", List.of());
+        DEPENDENCIES.put("section10", List.of());
+        DEPENDENCIES.put("section11", List.of());
+        DEPENDENCIES.put("section12", List.of());
+    }
+
+    //    values: section build xong (theo thứ tự key), failures: section lỗi + section bị bỏ vì phụ thuộc node lỗi
+    public record Result<T>(Map<String, T> values, Map<String, Throwable> failures) {
+    }
+
+    @Value("${app.homepage.graph.max-concurrency:6}")
+    private int maxConcurrency;
+
+    public static List<String> allSections() {
+        return List.copyOf(DEPENDENCIES.keySet());
+    }
+
+    //    KEY + EVERYTHING IT IS BUILT FROM (dependencies first)
+    public List<String> withDependencies(String key) {
+        Set<String> ordered = new LinkedHashSet<>();
+        collect(key, ordered);
+        return new ArrayList<>(ordered);
+    }
+
+    private void collect(String key, Set<String> ordered) {
+        List<String> dependencies = DEPENDENCIES.get(key);
+        if (dependencies == null) throw new IllegalArgumentException("Unknown section: " + key);
+        dependencies.forEach(dependency -> collect(dependency, ordered));
+        ordered.add(key);
+    }
+
+    // ===================================
+    // RUN: max parallelism, capped, results in the order of keys
+    // ===================================
+    // Chỉ tính cạnh giữa các key được yêu cầu; 1 node lỗi -> chỉ bỏ các node build từ nó (vd: raw -> section1, section6)
+    public <T> Result<T> run(Collection<String> keys, Function<String, T> task, Executor executor) {
+        Execution<T> execution = new Execution<>(keys, task, executor, Math.max(1, maxConcurrency));
+        return execution.start().join();
+    }
+
+    //    NON-BLOCKING: one future per section (caller decides how long to wait)
+    public <T> Map<String, CompletableFuture<T>> start(Collection<String> keys, Function<String, T> task, Executor executor) {
+        Execution<T> execution = new Execution<>(keys, task, executor, Math.max(1, maxConcurrency));
+        execution.start();
+        return execution.futures;
+    }
+
+    private static final class Execution<T> {
+        private final List<String> keys;
+        private final Function<String, T> task;
+        private final Executor executor;
+        private final int cap;
+        private final Map<String, Integer> pendingDependencies = new HashMap<>();
+        private final Map<String, List<String>> dependents = new HashMap<>();
+        private final Deque<String> ready = new ArrayDeque<>();
+        private final Map<String, T> results = new HashMap<>();
+        private final Map<String, Throwable> failures = new LinkedHashMap<>();
+        private final CompletableFuture<Result<T>> done = new CompletableFuture<>();
+        private final Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        private final Deadline deadline = Deadline.current().orElse(null);
+        private int running;
+        private int settled;
+        private boolean finished;
+
+        private Execution(Collection<String> keys, Function<String, T> task, Executor executor, int cap) {
+            this.keys = List.copyOf(new LinkedHashSet<>(keys));
+            this.task = task;
+            this.executor = executor;
+            this.cap = cap;
+
+            for (String key : this.keys) {
+                List<String> dependencies = DEPENDENCIES.get(key);
+                if (dependencies == null) throw new IllegalArgumentException("Unknown section: " + key);
+                List<String> inRun = dependencies.stream().filter(this.keys::contains).toList();
+                pendingDependencies.put(key, inRun.size());
+                inRun.forEach(dependency -> dependents.computeIfAbsent(dependency, d -> new ArrayList<>()).add(key));
+                if (inRun.isEmpty()) ready.add(key);
+                futures.put(key, new CompletableFuture<>());
+            }
+        }
+
+        private CompletableFuture<Result<T>> start() {
+            pump();
+            return done;
+        }
+
+        // Chọn node dưới lock, submit sau khi nhả lock: CallerRunsPolicy chạy task ngay trên thread này
+        // thì cũng không giữ lock (các worker khác vẫn onComplete được)
+        private void pump() {
+            List<String> dispatch = new ArrayList<>();
+            Result<T> result = null;
+            synchronized (this) {
+                while (running < cap && !ready.isEmpty()) {
+                    String key = ready.poll();
+                    if (skipped(key)) continue;   // đã bị bỏ vì node phụ thuộc lỗi
+                    running++;
+                    dispatch.add(key);
+                }
+                if (running == 0 && !finished && settled == keys.size()) {
+                    finished = true;
+                    Map<String, T> ordered = new LinkedHashMap<>();
+                    keys.stream().filter(results::containsKey).forEach(key -> ordered.put(key, results.get(key)));
+                    result = new Result<>(ordered, new LinkedHashMap<>(failures));
+                }
+            }
+
+            for (String key : dispatch) {
+                Supplier<T> work = () -> task.apply(key);
+                CompletableFuture.supplyAsync(deadline != null ? deadline.wrap(work) : work, executor)
+                        .whenComplete((value, error) -> onComplete(key, value, error));
+            }
+            if (result != null) done.complete(result);
+        }
+
+        private void onComplete(String key, T value, Throwable error) {
+            Map<String, Throwable> failed = new LinkedHashMap<>();
+            synchronized (this) {
+                running--;
+                settled++;
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    RuntimeException failure = new RuntimeException("Failed to fetch " + key, cause);
+                    failures.put(key, failure);
+                    failed.put(key, failure);
+                    log.warn("⚠️ Section {} failed, other sections keep going: {}", key, cause.getMessage());
+                    skipDependents(key, failed);
+                } else {
+                    results.put(key, value);
+                    for (String dependent : dependents.getOrDefault(key, List.of())) {
+                        if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0 && !skipped(dependent)) {
+                            ready.add(dependent);
+                        }
+                    }
+                }
+            }
+
+            // Future hoàn tất ngoài lock: callback của nơi gọi không chặn graph
+            if (error == null) futures.get(key).complete(value);
+            failed.forEach((failedKey, failure) -> futures.get(failedKey).completeExceptionally(failure));
+            pump();
+        }
+
+        //    NODES BUILT FROM A FAILED NODE (transitively) never start
+        private void skipDependents(String key, Map<String, Throwable> failed) {
+            for (String dependent : dependents.getOrDefault(key, List.of())) {
+                if (skipped(dependent)) continue;
+                RuntimeException skipped = new IllegalStateException("Skipped " + dependent + ": " + key + " failed");
+                failures.put(dependent, skipped);
+                failed.put(dependent, skipped);
+                settled++;
+                log.warn("⏭️ Section {} skipped, it is built from failed {}", dependent, key);
+                skipDependents(dependent, failed);
+            }
+        }
+
+        private boolean skipped(String key) {
+            return failures.containsKey(key);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package movieapp.util;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Hạn chót của 1 request/tính toán, truyền theo thread (kể cả sang executor qua wrap)
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(Duration duration) {
+        return new Deadline(System.currentTimeMillis() + duration.toMillis());
+    }
+
+    public static Optional<Deadline> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+
+    //    THROW IF THE CURRENT THREAD'S DEADLINE HAS PASSED
+    public static void check(String operation) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(operation);
+        }
+    }
+
+    //    RUN TASK WITH THIS DEADLINE INSTALLED ON THE EXECUTING THREAD
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        return () -> {
+            Deadline previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) CURRENT.set(previous);
+                else CURRENT.remove();
+            }
+        };
+    }
+
+    //    CARRY THE CALLER'S DEADLINE (if any) INTO ANOTHER THREAD
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Deadline deadline = CURRENT.get();
+        return deadline != null ? deadline.wrap(task) : task;
+    }
+
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String operation) {
+            super("Deadline exceeded before " + operation);
+        }
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
 @ControllerAdvice
 public class FormatResponse implements ResponseBodyAdvice<Object> {
+    public static final String DEFAULT_MESSAGE = "CALL API SUCCESS";
+
     @Override
     public boolean supports(MethodParameter returnType, Class converterType) {
         return true;
@@ -27,7 +29,8 @@ public class FormatResponse implements ResponseBodyAdvice<Object> {
         RestResponse<Object> res = new RestResponse<Object>();
         res.setStatusCode(status);
 
-        if (body instanceof String || body instanceof Resource) {
+        // byte[]: body đã render sẵn (vd: homepage pre-rendered)
+        if (body instanceof String || body instanceof Resource || body instanceof byte[]) {
             return body;
         }
         String path = request.getURI().getPath();
@@ -41,7 +44,7 @@ public class FormatResponse implements ResponseBodyAdvice<Object> {
         } else {
             res.setData(body);
             ApiMessage message = returnType.getMethodAnnotation(ApiMessage.class);
-            res.setMessage(message != null ? message.value() : "CALL API SUCCESS");
+            res.setMessage(message != null ? message.value() : DEFAULT_MESSAGE);
         }
 
         return res;
@@ -0,0 +1,79 @@
+package movieapp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheValueCodecTest {
+
+    @Test
+    void smileRoundTripWithoutCompression() {
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.SMILE, 4096);
+        CacheEntry entry = new CacheEntry(List.of("phim-a", "phim-b"), 1_700_000_000_000L, 42L, "abc123");
+
+        byte[] bytes = codec.serialize(entry);
+
+        assertThat(bytes[0]).isEqualTo(CacheValueCodec.MAGIC);
+        assertThat(bytes[2] & CacheValueCodec.FLAG_LZ4).isZero();
+        assertThat(codec.deserialize(bytes)).isEqualTo(entry);
+    }
+
+    @Test
+    void smileRoundTripWithLz4() {
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.SMILE, 64);
+        List<String> slugs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            slugs.add("https://img.ophim.live/uploads/movies/phim-" + (i % 10) + "-thumb.jpg");
+        }
+        CacheEntry entry = new CacheEntry(slugs, 1_700_000_000_000L, 7L);
+
+        byte[] bytes = codec.serialize(entry);
+
+        assertThat(bytes[2] & CacheValueCodec.FLAG_LZ4).isEqualTo((int) CacheValueCodec.FLAG_LZ4);
+        assertThat(codec.deserialize(bytes)).isEqualTo(entry);
+    }
+
+    @Test
+    void jsonFormatWritesPlainJson() {
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.JSON, 64);
+        CacheEntry entry = new CacheEntry(List.of("phim-a"), 1L, 2L, "fp");
+
+        byte[] bytes = codec.serialize(entry);
+
+        assertThat(bytes[0]).isEqualTo((byte) '{');
+        assertThat(codec.deserialize(bytes)).isEqualTo(entry);
+    }
+
+    @Test
+    void readsLegacyJsonWrittenBeforeTheCodec() {
+        // Entry cũ do GenericJackson2JsonRedisSerializer ghi (không có header)
+        byte[] legacy = new GenericJackson2JsonRedisSerializer().serialize(new CacheEntry(List.of("phim-a"), 1L, 2L));
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.SMILE, 64);
+
+        assertThat(codec.deserialize(legacy)).isEqualTo(new CacheEntry(List.of("phim-a"), 1L, 2L));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.SMILE, 64);
+
+        assertThatThrownBy(() -> codec.deserialize(new byte[]{CacheValueCodec.MAGIC, 99, 0}))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void emptyValues() {
+        CacheValueCodec codec = new CacheValueCodec(CacheValueCodec.Format.SMILE, 64);
+
+        assertThat(codec.serialize(null)).isEmpty();
+        assertThat(codec.deserialize(new byte[0])).isNull();
+        assertThat(CacheValueCodec.parseFormat("nope")).isEqualTo(CacheValueCodec.Format.JSON);
+        assertThat(CacheValueCodec.parseFormat(" smile ")).isEqualTo(CacheValueCodec.Format.SMILE);
+    }
+}
@@ -0,0 +1,121 @@
+package movieapp.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterLeaseTest {
+    // Mỗi script nhận diện qua KEYS
+    private static final List<String> ACQUIRE_KEYS = List.of("lease::warmup", "lease::fence::seq");
+    private static final List<String> RENEW_KEYS = List.of("lease::warmup");
+    private static final List<String> RELEASE_KEYS = List.of("lease::warmup", "lease::warmup::done");
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private ClusterLease clusterLease;
+
+    @BeforeEach
+    void setUp() {
+        clusterLease = new ClusterLease(redisTemplate);
+        ReflectionTestUtils.setField(clusterLease, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(clusterLease, "standbyWindowSeconds", 0L);
+        ReflectionTestUtils.setField(clusterLease, "pollSeconds", 1L);
+        ReflectionTestUtils.setField(clusterLease, "cooldownSeconds", 300L);
+        when(redisTemplate.hasKey("lease::warmup::done")).thenReturn(false);
+    }
+
+    @AfterEach
+    void shutdown() {
+        clusterLease.shutdown();
+    }
+
+    @Test
+    void acquireCarriesTheFencingToken() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(ACQUIRE_KEYS), anyString(), eq("60000"))).thenReturn(7L, 0L);
+
+        Optional<ClusterLease.Lease> first = clusterLease.tryAcquire("warmup");
+        Optional<ClusterLease.Lease> second = clusterLease.tryAcquire("warmup");
+
+        assertThat(first).isPresent();
+        assertThat(first.get().getFencingToken()).isEqualTo(7L);
+        assertThat(first.get().isHeld()).isTrue();
+        assertThat(second).isEmpty();
+    }
+
+    @Test
+    void renewKeepsTheLeaseOrFencesItOff() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(ACQUIRE_KEYS), anyString(), anyString())).thenReturn(3L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(RENEW_KEYS), endsWith(":3"), eq("60000"))).thenReturn(1L, 0L);
+        ClusterLease.Lease lease = clusterLease.tryAcquire("warmup").orElseThrow();
+
+        lease.renew();
+        assertThat(lease.isHeld()).isTrue();
+
+        // Key đã thuộc holder khác (hết hạn + instance khác nhận) -> mất lease
+        lease.renew();
+        assertThat(lease.isHeld()).isFalse();
+    }
+
+    @Test
+    void completedTaskWritesTheDoneMarker() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(ACQUIRE_KEYS), anyString(), anyString())).thenReturn(5L);
+        AtomicReference<ClusterLease.Lease> seen = new AtomicReference<>();
+
+        boolean ran = clusterLease.runExclusively("warmup", seen::set);
+
+        assertThat(ran).isTrue();
+        assertThat(seen.get().getFencingToken()).isEqualTo(5L);
+        assertThat(seen.get().isHeld()).isFalse();
+        verify(redisTemplate).execute(any(RedisScript.class), eq(RELEASE_KEYS), endsWith(":5"), eq("300000"));
+    }
+
+    @Test
+    void failedTaskReleasesWithoutDoneMarker() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(ACQUIRE_KEYS), anyString(), anyString())).thenReturn(5L);
+
+        assertThatThrownBy(() -> clusterLease.runExclusively("warmup", lease -> {
+            throw new IllegalStateException("warm-up failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // Cooldown rỗng = chỉ nhả lease, standby được nhận và chạy lại
+        verify(redisTemplate).execute(any(RedisScript.class), eq(RELEASE_KEYS), endsWith(":5"), eq(""));
+    }
+
+    @Test
+    void skipsWhenAnotherInstanceAlreadyCompleted() {
+        when(redisTemplate.hasKey("lease::warmup::done")).thenReturn(true);
+        AtomicReference<ClusterLease.Lease> seen = new AtomicReference<>();
+
+        assertThat(clusterLease.runExclusively("warmup", seen::set)).isFalse();
+        assertThat(clusterLease.runIfFree("warmup", seen::set)).isFalse();
+        assertThat(seen.get()).isNull();
+        verify(redisTemplate, never()).execute(any(RedisScript.class), eq(ACQUIRE_KEYS), anyString(), anyString());
+    }
+
+    @Test
+    void redisDownRunsWithoutLease() {
+        when(redisTemplate.hasKey("lease::warmup::done")).thenThrow(new IllegalStateException("Redis down"));
+        AtomicReference<Boolean> ran = new AtomicReference<>(false);
+
+        assertThat(clusterLease.runExclusively("warmup", lease -> ran.set(lease == null))).isTrue();
+        assertThat(ran.get()).isTrue();
+        assertThat(clusterLease.runIfFree("warmup", lease -> ran.set(false))).isFalse();
+    }
+}
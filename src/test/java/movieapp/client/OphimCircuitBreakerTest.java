@@ -0,0 +1,107 @@
+package movieapp.client;
+
+import movieapp.client.OphimCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OphimCircuitBreakerTest {
+
+    // window 4, tối thiểu 4 call, 50% lỗi / 50% chậm (>= 1000ms), 2 call thử
+    private static OphimCircuitBreaker breaker(long openMillis) {
+        return new OphimCircuitBreaker(4, 4, 50, 50, 1_000, openMillis, 2);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        OphimCircuitBreaker breaker = breaker(60_000);
+        breaker.record(10, true);
+        breaker.record(10, true);
+        breaker.record(10, false);
+        // Chưa đủ minimumCalls
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        breaker.record(10, false);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.failureRate()).isEqualTo(0.5);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void opensOnSlowCalls() {
+        OphimCircuitBreaker breaker = breaker(60_000);
+        breaker.record(1_500, false);
+        breaker.record(2_000, false);
+        breaker.record(10, false);
+        breaker.record(10, false);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.slowCallRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void healthyWindowStaysClosed() {
+        OphimCircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 10; i++) {
+            breaker.record(10, i % 4 == 0);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulTrials() {
+        OphimCircuitBreaker breaker = trippedBreaker();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        // Hết lượt thử
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.record(10, false);
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        breaker.record(10, false);
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.failureRate()).isZero();
+    }
+
+    @Test
+    void halfOpenReopensOnFailedOrSlowTrial() {
+        OphimCircuitBreaker failed = trippedBreaker();
+        failed.tryAcquire();
+        failed.record(10, true);
+        assertThat(failed.getState()).isEqualTo(State.OPEN);
+
+        OphimCircuitBreaker slow = trippedBreaker();
+        slow.tryAcquire();
+        slow.record(1_200, false);
+        assertThat(slow.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void unusedTrialIsGivenBack() {
+        OphimCircuitBreaker breaker = trippedBreaker();
+        breaker.tryAcquire();
+        breaker.tryAcquire();
+
+        // Bị rate limit chặn trước khi gửi -> trả lượt thử
+        breaker.releaseUnused();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    // openMillis = 0: tryAcquire kế tiếp chuyển sang HALF_OPEN
+    private static OphimCircuitBreaker trippedBreaker() {
+        OphimCircuitBreaker breaker = breaker(0);
+        for (int i = 0; i < 4; i++) {
+            breaker.record(10, true);
+        }
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        return breaker;
+    }
+}
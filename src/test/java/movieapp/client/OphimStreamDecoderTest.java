@@ -0,0 +1,93 @@
+package movieapp.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import movieapp.dto.OphimResponse.OphimHomepageResponse;
+import movieapp.dto.OphimResponse.OphimListResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OphimStreamDecoderTest {
+    private final OphimStreamDecoder decoder = new OphimStreamDecoder(new ObjectMapper());
+
+    private static String item(String slug) {
+        return """
+                {"_id":"id-%1$s","name":"Phim %1$s","slug":"%1$s","origin_name":"Movie %1$s","year":2024,
+                 "category":[{"id":"c1","name":"Hành Động","slug":"hanh-dong"}],
+                 "modified":{"time":"2024-05-01T10:00:00.000Z"},"episodes":[{"server_name":"#1","server_data":[]}]}
+                """.formatted(slug);
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void listStopsReadingAtMaxItems() throws IOException {
+        // Phần sau item thứ 2 là JSON hỏng: nếu decoder đọc tiếp sẽ ném lỗi
+        String json = "{\"status\":\"success\",\"message\":\"ok\",\"data\":{\"items\":["
+                + item("phim-a") + "," + item("phim-b") + "," + item("phim-c") + ", {\"slug\": ??? ";
+
+        OphimListResponse response = decoder.decodeList(body(json), OphimItemProjection.CARD, 2);
+
+        assertThat(response.getStatus()).isEqualTo("success");
+        assertThat(response.getData().getItems()).extracting(OphimMovieItem::getSlug).containsExactly("phim-a", "phim-b");
+    }
+
+    @Test
+    void listReadsEverythingBelowTheCap() throws IOException {
+        String json = "{\"status\":\"success\",\"data\":{\"seoOnPage\":{\"titleHead\":\"x\"},\"items\":["
+                + item("phim-a") + "]},\"extra\":[1,2,3]}";
+
+        OphimListResponse response = decoder.decodeList(body(json), OphimItemProjection.CARD, 10);
+
+        assertThat(response.getData().getItems()).hasSize(1);
+        OphimMovieItem movie = response.getData().getItems().get(0);
+        assertThat(movie.getId()).isEqualTo("id-phim-a");
+        assertThat(movie.getOriginName()).isEqualTo("Movie phim-a");
+        assertThat(movie.getYear()).isEqualTo(2024);
+        assertThat(movie.getCategory()).hasSize(1);
+        assertThat(OphimDetailCache.modifiedTime(movie)).isEqualTo("2024-05-01T10:00:00.000Z");
+    }
+
+    @Test
+    void projectionOnlyMaterializesListedFields() throws IOException {
+        OphimItemProjection slugOnly = new OphimItemProjection("slug-only", Set.of("slug", "name"));
+        String json = "{\"status\":\"success\",\"data\":{\"items\":[" + item("phim-a") + "]}}";
+
+        OphimMovieItem movie = decoder.decodeList(body(json), slugOnly, 10).getData().getItems().get(0);
+
+        assertThat(movie.getSlug()).isEqualTo("phim-a");
+        assertThat(movie.getName()).isEqualTo("Phim phim-a");
+        assertThat(movie.getOriginName()).isNull();
+        assertThat(movie.getYear()).isNull();
+        assertThat(movie.getCategory()).isNull();
+        assertThat(movie.getModified()).isNull();
+    }
+
+    @Test
+    void homepageKeepsSeoAndParams() throws IOException {
+        String json = "{\"status\":\"success\",\"data\":{\"items\":[" + item("phim-a") + "," + item("phim-b")
+                + "],\"seoOnPage\":{\"titleHead\":\"Ophim\"},\"params\":{\"pagination\":{\"totalItems\":2}}}}";
+
+        OphimHomepageResponse response = decoder.decodeHomepage(body(json), OphimItemProjection.CARD);
+
+        assertThat(response.getData().getItems()).extracting(OphimMovieItem::getSlug).containsExactly("phim-a", "phim-b");
+        assertThat(response.getData().getSeoOnPage()).isNotNull();
+        assertThat(response.getData().getParams()).isNotNull();
+    }
+
+    @Test
+    void rejectsNonObjectBody() {
+        assertThatThrownBy(() -> decoder.decodeList(body("[]"), OphimItemProjection.CARD, 10))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,40 @@
+package movieapp.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void burstThenWaitsForRefill() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isZero();
+
+        // Hết burst: không chờ được -> -1, không lấy token
+        assertThat(bucket.reserve(0)).isEqualTo(-1);
+        assertThat(bucket.available()).isLessThan(1);
+
+        // Chờ được -> đặt trước, số dư âm, caller kế tiếp phải chờ lâu hơn
+        long firstWait = bucket.reserve(5_000);
+        long secondWait = bucket.reserve(5_000);
+        assertThat(firstWait).isBetween(1L, 1_000L);
+        assertThat(secondWait).isGreaterThan(firstWait).isLessThanOrEqualTo(2_000L);
+        assertThat(bucket.available()).isZero();
+    }
+
+    @Test
+    void refillsUpToBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1_000, 3);
+        for (int i = 0; i < 3; i++) {
+            bucket.reserve(0);
+        }
+
+        Thread.sleep(20);
+
+        assertThat(bucket.available()).isEqualTo(3);
+        assertThat(bucket.reserve(0)).isZero();
+    }
+}
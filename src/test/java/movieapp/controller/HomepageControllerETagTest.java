@@ -0,0 +1,92 @@
+package movieapp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import movieapp.cache.CacheKeyInspector;
+import movieapp.dto.HomepageReponse.HomepageGroupResponse;
+import movieapp.service.CacheStrategy;
+import movieapp.service.HomepageRenderer;
+import movieapp.service.HomepageRenderer.RenderedBody;
+import movieapp.service.HomepageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HomepageControllerETagTest {
+    private final HomepageService homepageService = mock(HomepageService.class);
+    private final HomepageRenderer renderer = new HomepageRenderer(new ObjectMapper());
+    private final HomepageController controller = new HomepageController(homepageService, mock(CacheStrategy.class),
+            mock(CacheKeyInspector.class));
+    private RenderedBody body;
+
+    @BeforeEach
+    void setUp() {
+        body = renderer.render(HomepageGroupResponse.builder().group("group1").cachedAt(1L).build());
+        when(homepageService.getRenderedGroup("group1")).thenReturn(Optional.of(body));
+    }
+
+    @Test
+    void firstRequestGetsBodyAndETag() {
+        ResponseEntity<?> response = controller.getHomepageGrouped("group1", null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(body.etag());
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat((byte[]) response.getBody()).isEqualTo(body.identity());
+    }
+
+    @Test
+    void gzipClientGetsPrecompressedBody() {
+        ResponseEntity<?> response = controller.getHomepageGrouped("group1", null, "gzip, deflate, br");
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat((byte[]) response.getBody()).isEqualTo(body.gzip());
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutBody() {
+        ResponseEntity<?> response = controller.getHomepageGrouped("group1", body.etag(), "gzip");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo(body.etag());
+        assertThat(response.getBody()).isNull();
+        verify(homepageService, never()).getHomepageByGroup("group1");
+    }
+
+    @Test
+    void weakListAndWildcardValidatorsMatch() {
+        // CDN / proxy có thể đổi sang weak ETag sau khi nén lại
+        assertThat(controller.getHomepageGrouped("group1", "\"other\", W/" + body.etag(), null).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(controller.getHomepageGrouped("group1", "*", null).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void staleValidatorGetsFullBody() {
+        RenderedBody previous = renderer.render(HomepageGroupResponse.builder().group("group1").cachedAt(0L).build());
+
+        ResponseEntity<?> response = controller.getHomepageGrouped("group1", previous.etag(), null);
+
+        assertThat(previous.etag()).isNotEqualTo(body.etag());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(body.etag());
+    }
+
+    @Test
+    void sameContentRendersSameETag() {
+        RenderedBody again = renderer.render(HomepageGroupResponse.builder().group("group1").cachedAt(1L).build());
+
+        assertThat(again.etag()).isEqualTo(body.etag()).startsWith("\"").endsWith("\"");
+    }
+}
@@ -0,0 +1,142 @@
+package movieapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import movieapp.cache.CacheFingerprints;
+import movieapp.cache.CacheTagIndex;
+import movieapp.cache.ClusterLease;
+import movieapp.cache.RedisCircuitBreaker;
+import movieapp.cache.TwoTierCache;
+import movieapp.client.OphimClient;
+import movieapp.client.OphimDetailCache;
+import movieapp.client.OphimResilience;
+import movieapp.client.OphimStreamDecoder;
+import movieapp.client.PermitQueue;
+import movieapp.client.UpstreamFailureCache;
+import movieapp.dto.CustomFieldsResponse.MovieItemDTO;
+import movieapp.dto.OphimResponse.OphimListResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheStrategyFingerprintTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final TwoTierCache cache = mock(TwoTierCache.class);
+    private final CacheFingerprints cacheFingerprints = new CacheFingerprints();
+
+    private CachedSectionService cachedSectionService;
+    private CacheStrategy cacheStrategy;
+    private ClusterLease.Lease lease;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Ophim không đổi: lần nào cũng trả cùng 1 phim
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), isNull(), any(ResponseExtractor.class)))
+                .thenReturn(listResponse("phim-a"));
+
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        RedisCircuitBreaker redisCircuitBreaker = new RedisCircuitBreaker(5, 30_000, meterRegistry);
+        UpstreamFailureCache failureCache = new UpstreamFailureCache(stringRedisTemplate, redisCircuitBreaker, meterRegistry, 15, 5, 10, 30);
+        ObjectMapper objectMapper = new ObjectMapper();
+        OphimClient ophimClient = new OphimClient(restTemplate, null, new PermitQueue(4), objectMapper, failureCache,
+                new OphimResilience(new MockEnvironment(), meterRegistry), new OphimStreamDecoder(objectMapper));
+        ReflectionTestUtils.setField(ophimClient, "baseUrl", "http://ophim.test");
+        ReflectionTestUtils.setField(ophimClient, "totalTimeoutSeconds", 10L);
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache("homepage")).thenReturn(cache);
+
+        cachedSectionService = new CachedSectionService(ophimClient, mock(OphimDetailCache.class),
+                mock(ImageOptimizationService.class), mock(CacheTagIndex.class), cacheFingerprints, cacheManager, executor, 30, 100, 1);
+        lease = mock(ClusterLease.Lease.class);
+        when(lease.isHeld()).thenReturn(true);
+
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.opsForHash()).thenReturn(mock(HashOperations.class));
+        cacheStrategy = new CacheStrategy(mock(HomepageService.class), cachedSectionService,
+                mock(HomepageSnapshotStore.class), mock(HomepageDiskSnapshot.class), new SectionGraph(),
+                mock(CacheTagInvalidator.class), new SectionFreshnessTracker(redisTemplate, meterRegistry),
+                executor, cacheManager, mock(ClusterLease.class), failureCache, meterRegistry);
+        ReflectionTestUtils.setField(cacheStrategy, "retryMaxAttempts", 1);
+        ReflectionTestUtils.setField(cacheStrategy, "retryInitialBackoffMs", 1L);
+        ReflectionTestUtils.setField(cacheStrategy, "retryMaxBackoffMs", 5L);
+        ReflectionTestUtils.setField(cacheStrategy, "refreshBudgetSeconds", 60L);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void secondRefreshWithUnchangedUpstreamTouchesInsteadOfRebuilding() {
+        cacheStrategy.refreshGroupSafely("group1", List.of("section5"), lease);
+
+        ArgumentCaptor<Map<String, String>> fingerprints = ArgumentCaptor.forClass(Map.class);
+        verify(cache).putAll(anyMap(), anyMap(), fingerprints.capture());
+        String stored = fingerprints.getValue().get("section5");
+        assertThat(stored).isNotNull();
+        when(cache.fingerprintOf("section5")).thenReturn(stored);
+
+        cacheStrategy.refreshGroupSafely("group1", List.of("section5"), lease);
+
+        // Lần 2: không build lại gì, chỉ gia hạn entry cũ
+        ArgumentCaptor<Map<String, Object>> values = ArgumentCaptor.forClass(Map.class);
+        verify(cache, times(2)).putAll(values.capture(), anyMap(), anyMap());
+        assertThat(values.getAllValues().get(0)).containsOnlyKeys("section5");
+        assertThat(values.getAllValues().get(1)).isEmpty();
+        verify(cache).touchAll(List.of("section5"));
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), isNull(), any(ResponseExtractor.class));
+    }
+
+    @Test
+    void cacheableWriteStoresTheFingerprintRefreshCompares() {
+        // @Cacheable / SWR: TwoTierCache hỏi CacheFingerprints ngay sau khi build, không gọi thêm Ophim
+        List<MovieItemDTO> section = cachedSectionService.fetchSection5();
+        String written = cacheFingerprints.fingerprintOf("homepage", "section5");
+
+        assertThat(section).hasSize(1);
+        assertThat(written).isNotNull().isEqualTo(cachedSectionService.fingerprintSection("section5"));
+    }
+
+    private static OphimListResponse listResponse(String slug) {
+        OphimMovieItem item = new MovieItemDTO();
+        item.setSlug(slug);
+        OphimListResponse.ListData data = new OphimListResponse.ListData();
+        data.setItems(List.of(item));
+        OphimListResponse response = new OphimListResponse();
+        response.setData(data);
+        return response;
+    }
+}
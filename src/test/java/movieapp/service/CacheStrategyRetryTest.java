@@ -0,0 +1,118 @@
+package movieapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import movieapp.cache.CacheFingerprints;
+import movieapp.cache.CacheTagIndex;
+import movieapp.cache.ClusterLease;
+import movieapp.cache.RedisCircuitBreaker;
+import movieapp.client.OphimClient;
+import movieapp.client.OphimDetailCache;
+import movieapp.client.OphimResilience;
+import movieapp.client.OphimStreamDecoder;
+import movieapp.client.PermitQueue;
+import movieapp.client.UpstreamFailureCache;
+import movieapp.dto.CustomFieldsResponse.MovieItemDTO;
+import movieapp.dto.OphimResponse.OphimListResponse;
+import movieapp.dto.OphimResponse.OphimMovieItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheStrategyRetryTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void transient503ThenSuccessStillRefreshesSection() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // Redis trả lời nhưng rỗng: không có negative entry / outage từ instance khác
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        RedisCircuitBreaker redisCircuitBreaker = new RedisCircuitBreaker(5, 30_000, meterRegistry);
+        UpstreamFailureCache failureCache = new UpstreamFailureCache(stringRedisTemplate, redisCircuitBreaker, meterRegistry, 15, 5, 10, 30);
+
+        // Ophim: lần 1 trả 503, lần 2 trả 1 phim
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), isNull(), any(ResponseExtractor.class)))
+                .thenThrow(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", null, new byte[0], StandardCharsets.UTF_8))
+                .thenReturn(listResponse("phim-a"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        OphimClient ophimClient = new OphimClient(restTemplate, null, new PermitQueue(4), objectMapper, failureCache,
+                new OphimResilience(new MockEnvironment(), meterRegistry), new OphimStreamDecoder(objectMapper));
+        ReflectionTestUtils.setField(ophimClient, "baseUrl", "http://ophim.test");
+        ReflectionTestUtils.setField(ophimClient, "totalTimeoutSeconds", 10L);
+
+        Cache cache = mock(Cache.class);
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache("homepage")).thenReturn(cache);
+
+        CachedSectionService cachedSectionService = new CachedSectionService(ophimClient, mock(OphimDetailCache.class),
+                mock(ImageOptimizationService.class), mock(CacheTagIndex.class), mock(CacheFingerprints.class), cacheManager, executor, 30, 100, 1);
+        ClusterLease.Lease lease = mock(ClusterLease.Lease.class);
+        when(lease.isHeld()).thenReturn(true);
+
+        // Freshness tracker ghi hash section -> thời điểm build
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+
+        CacheStrategy cacheStrategy = new CacheStrategy(mock(HomepageService.class), cachedSectionService,
+                mock(HomepageSnapshotStore.class), mock(HomepageDiskSnapshot.class), new SectionGraph(),
+                mock(CacheTagInvalidator.class), new SectionFreshnessTracker(redisTemplate, meterRegistry),
+                executor, cacheManager, mock(ClusterLease.class), failureCache, meterRegistry);
+        ReflectionTestUtils.setField(cacheStrategy, "retryMaxAttempts", 3);
+        ReflectionTestUtils.setField(cacheStrategy, "retryInitialBackoffMs", 1L);
+        ReflectionTestUtils.setField(cacheStrategy, "retryMaxBackoffMs", 5L);
+        ReflectionTestUtils.setField(cacheStrategy, "refreshBudgetSeconds", 60L);
+
+        cacheStrategy.refreshGroupSafely("group1", List.of("section5"), lease);
+
+        verify(restTemplate, times(2)).execute(anyString(), eq(HttpMethod.GET), isNull(), any(ResponseExtractor.class));
+        verify(cache).put(eq("section5"), any());
+        verify(hashOperations).putAll(eq("homepage::freshness"), argThat(updates -> updates.containsKey("section5")));
+        assertThat(failureCache.isOutage()).isFalse();
+    }
+
+    private static OphimListResponse listResponse(String slug) {
+        OphimMovieItem item = new MovieItemDTO();
+        item.setSlug(slug);
+        OphimListResponse.ListData data = new OphimListResponse.ListData();
+        data.setItems(List.of(item));
+        OphimListResponse response = new OphimListResponse();
+        response.setData(data);
+        return response;
+    }
+}
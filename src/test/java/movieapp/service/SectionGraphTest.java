@@ -0,0 +1,83 @@
+package movieapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SectionGraphTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SectionGraph sectionGraph = new SectionGraph();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failedRawSkipsOnlyItsDependents() {
+        ReflectionTestUtils.setField(sectionGraph, "maxConcurrency", 3);
+        Set<String> started = ConcurrentHashMap.newKeySet();
+
+        SectionGraph.Result<String> result = sectionGraph.run(
+                List.of("raw", "section1", "section2", "section6", "section7"),
+                key -> {
+                    started.add(key);
+                    if (key.equals("raw")) throw new IllegalStateException("Ophim /home 503");
+                    return key + "-built";
+                },
+                executor);
+
+        // section1 / section6 build từ raw -> không bao giờ chạy
+        assertThat(started).containsExactlyInAnyOrder("raw", "section2", "section7");
+        assertThat(result.values()).containsOnlyKeys("section2", "section7");
+        assertThat(result.failures()).containsOnlyKeys("raw", "section1", "section6");
+        assertThat(result.failures().get("raw")).hasRootCauseMessage("Ophim /home 503");
+    }
+
+    @Test
+    void dependentsRunAfterTheirDependencyInKeyOrder() {
+        ReflectionTestUtils.setField(sectionGraph, "maxConcurrency", 1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        SectionGraph.Result<String> result = sectionGraph.run(List.of("section1", "section2", "raw"),
+                key -> {
+                    order.add(key);
+                    return key;
+                },
+                executor);
+
+        assertThat(order.indexOf("raw")).isLessThan(order.indexOf("section1"));
+        assertThat(result.values().keySet()).containsExactly("section1", "section2", "raw");
+        assertThat(result.failures()).isEmpty();
+    }
+
+    @Test
+    void leafFailureSkipsNothingElse() {
+        ReflectionTestUtils.setField(sectionGraph, "maxConcurrency", 6);
+
+        SectionGraph.Result<String> result = sectionGraph.run(List.of("raw", "section1", "section5"),
+                key -> {
+                    if (key.equals("section5")) throw new IllegalStateException("timeout");
+                    return key;
+                },
+                executor);
+
+        assertThat(result.values()).containsOnlyKeys("raw", "section1");
+        assertThat(result.failures()).containsOnlyKeys("section5");
+    }
+
+    @Test
+    void withDependenciesListsDependenciesFirst() {
+        assertThat(sectionGraph.withDependencies("section6")).containsExactly("raw", "section6");
+        assertThat(sectionGraph.withDependencies("section3")).containsExactly("section3");
+    }
+}